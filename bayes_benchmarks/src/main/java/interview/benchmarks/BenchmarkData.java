@@ -0,0 +1,127 @@
+package interview.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * <h1>Benchmark Data</h1>
+ * The BenchmarkData program provides the datasets and sentences shared by the benchmarks.
+ * The datasets are read from the bayes_training folder of the working directory, another folder can be set by
+ * the system property bayes.data.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+final class BenchmarkData {
+
+    /**
+     * A short sentence of known words.
+     */
+    static final String SHORT_SENTENCE = "Good shop, nice staff.";
+    /**
+     * A long sentence of mostly known words.
+     */
+    static final String LONG_SENTENCE = "Everything wrong, unwillingness of shop assistants, unpleasant staff, "
+            + "poor and small offer of goods, often a lot of things are missing, long waiting at the checkout; "
+            + "on the other hand the prices are fine, the parking is large and the location of the store is good, "
+            + "but I would not go there again unless I had to because the queues are really long every evening.";
+    /**
+     * A sentence of mostly unknown words.
+     */
+    static final String UNKNOWN_SENTENCE = "Xyzzy plugh frobnicate zorkmid grue quux, wibble wobble sprocket gizmo.";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Returns the sentence of the given kind: "short", "long" or "unknown".
+     *
+     * @param kind the kind of the sentence
+     * @return the sentence
+     */
+    static String sentence(String kind) {
+        switch (kind) {
+            case "short":
+                return SHORT_SENTENCE;
+            case "long":
+                return LONG_SENTENCE;
+            case "unknown":
+                return UNKNOWN_SENTENCE;
+            default:
+                throw new IllegalArgumentException("Unknown sentence kind " + kind);
+        }
+    }
+
+    /**
+     * Returns the path of the training CSV file.
+     *
+     * @return the path of train.csv
+     */
+    static Path trainCSV() {
+        return Paths.get(System.getProperty("bayes.data", "bayes_training"), "train.csv");
+    }
+
+    /**
+     * Writes a CSV file holding the header and the rows of train.csv repeated scale times.
+     *
+     * @param scale the number of copies of the rows
+     * @return the path of the written file
+     */
+    static Path scaledTrainCSV(int scale) throws IOException {
+        List<String> rows = Files.readAllLines(trainCSV(), StandardCharsets.UTF_8);
+        Path scaled = Files.createTempFile("train-x" + scale, ".csv");
+        scaled.toFile().deleteOnExit();
+        try (var writer = Files.newBufferedWriter(scaled, StandardCharsets.UTF_8)) {
+            writer.write(rows.get(0));
+            writer.newLine();
+            for (int copy = 0; copy < scale; copy++) {
+                for (String row : rows.subList(1, rows.size())) {
+                    writer.write(row);
+                    writer.newLine();
+                }
+            }
+        }
+        return scaled;
+    }
+
+    /**
+     * Writes a CSV file holding the header and the rows of train.csv with their labels
+     * replaced by labelCount labels assigned round robin.
+     *
+     * @param labelCount the number of labels
+     * @return the path of the written file
+     */
+    static Path relabeledTrainCSV(int labelCount) throws IOException {
+        List<String> rows = Files.readAllLines(trainCSV(), StandardCharsets.UTF_8);
+        Path relabeled = Files.createTempFile("train-labels" + labelCount, ".csv");
+        relabeled.toFile().deleteOnExit();
+        try (var writer = Files.newBufferedWriter(relabeled, StandardCharsets.UTF_8)) {
+            writer.write(rows.get(0));
+            writer.newLine();
+            for (int i = 1; i < rows.size(); i++) {
+                String row = rows.get(i);
+                int label = i % labelCount;
+                writer.write("label" + (char) ('a' + label / 26) + (char) ('a' + label % 26));
+                writer.write(row.substring(row.indexOf(';')));
+                writer.newLine();
+            }
+        }
+        return relabeled;
+    }
+
+    /**
+     * Returns a new temporary file deleted when the benchmark ends.
+     *
+     * @param suffix the suffix of the file name
+     * @return the path of the file
+     */
+    static Path temporaryFile(String suffix) throws IOException {
+        Path path = Files.createTempFile("bayes", suffix);
+        path.toFile().deleteOnExit();
+        return path;
+    }
+}
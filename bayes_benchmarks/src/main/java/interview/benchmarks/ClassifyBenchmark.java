@@ -0,0 +1,74 @@
+package interview.benchmarks;
+
+import interview.core.Explanation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Classify Benchmark</h1>
+ * Measures NaiveBayesClassifier.classify of the training program and of the server,
+ * the server model being loaded from the binary model file, on short and long
+ * sentences and on a sentence of mostly unknown words, and explaining the classification
+ * of the server. The models are trained on train.csv, or with 64 labels on train.csv
+ * with its labels replaced.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassifyBenchmark {
+
+    @Param({"short", "long", "unknown"})
+    String sentenceKind;
+
+    @Param({"3", "64"})
+    int labelCount;
+
+    String sentence;
+    interview.test.NaiveBayesClassifier trainingModel;
+    interview.bayes.NaiveBayesClassifier serverModel;
+
+    @Setup
+    public void setUp() throws IOException {
+        sentence = BenchmarkData.sentence(sentenceKind);
+        trainingModel = new interview.test.NaiveBayesClassifier();
+        Path trainCSV = labelCount == 3 ? BenchmarkData.trainCSV() : BenchmarkData.relabeledTrainCSV(labelCount);
+        trainingModel.fit(trainCSV.toString());
+        Path modelFile = BenchmarkData.temporaryFile(".bin");
+        trainingModel.writeBinaryParams(modelFile.toString());
+        serverModel = interview.bayes.NaiveBayesClassifier.fromFile(modelFile);
+    }
+
+    @Benchmark
+    public String classifyTraining() {
+        return trainingModel.classify(sentence);
+    }
+
+    @Benchmark
+    public String classifyServer() {
+        return serverModel.classify(sentence);
+    }
+
+    @Benchmark
+    public Explanation explainServer() {
+        return serverModel.explain(sentence, 5, null);
+    }
+}
@@ -0,0 +1,83 @@
+package interview.benchmarks;
+
+import interview.core.Features;
+import interview.test.CrossValidation;
+import interview.test.CrossValidator;
+import interview.test.Evaluator;
+import interview.test.NaiveBayesClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static interview.core.Preprocessor.preprocess;
+import static interview.test.CSVReader.readCSV;
+
+/**
+ * <h1>Cross Validation Benchmark</h1>
+ * Measures the 5-fold cross-validation of 8 alphas on train.csv: by training and
+ * evaluating a model for every fold and alpha from the preprocessed rows, and by
+ * CrossValidator, which counts every fold once, takes the counts of a fold away to
+ * get the model of the fold and evaluates all the models in one pass.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class CrossValidationBenchmark {
+
+    static final int FOLDS = 5;
+    static final double[] ALPHAS = {0.05, 0.1, 0.25, 0.5, 0.75, 1, 1.5, 2};
+
+    String trainCSV;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        trainCSV = BenchmarkData.trainCSV().toString();
+    }
+
+    @Benchmark
+    public double retrainFolds() throws IOException {
+        ArrayList<String> trainSentences = readCSV(trainCSV);
+        trainSentences.remove(0);
+        ArrayList<String[]> trainWords = preprocess(trainSentences);
+        double best = 0;
+        for (double alpha: ALPHAS) {
+            long hit = 0;
+            for (int fold = 0; fold < FOLDS; fold++) {
+                ArrayList<String[]> foldWords = new ArrayList<>();
+                ArrayList<String[]> restWords = new ArrayList<>();
+                for (int row = 0; row < trainWords.size(); row++) {
+                    (row % FOLDS == fold ? foldWords : restWords).add(trainWords.get(row));
+                }
+                NaiveBayesClassifier model = new NaiveBayesClassifier(Features.UNIGRAMS, alpha);
+                model.fit(restWords);
+                hit += Math.round(Evaluator.evaluate(foldWords, model) * foldWords.size());
+            }
+            best = Math.max(best, (double) hit / trainWords.size());
+        }
+        return best;
+    }
+
+    @Benchmark
+    public CrossValidation crossValidate() throws IOException {
+        return CrossValidator.crossValidate(trainCSV, Features.UNIGRAMS, FOLDS, ALPHAS,
+                Runtime.getRuntime().availableProcessors());
+    }
+}
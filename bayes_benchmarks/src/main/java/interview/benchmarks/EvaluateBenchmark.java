@@ -0,0 +1,76 @@
+package interview.benchmarks;
+
+import interview.test.Evaluation;
+import interview.test.Evaluator;
+import interview.test.NaiveBayesClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static interview.core.Preprocessor.preprocess;
+import static interview.test.CSVReader.readCSV;
+
+/**
+ * <h1>Evaluate Benchmark</h1>
+ * Measures evaluating the model trained on train.csv on the rows of train.csv, from
+ * reading the file to the results: by reading it whole, preprocessing it and
+ * classifying the sentences joined from the words again, and by the streamed
+ * evaluation on one thread and on all available processors.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluateBenchmark {
+
+    String testCSV;
+    NaiveBayesClassifier model;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        testCSV = BenchmarkData.trainCSV().toString();
+        model = new NaiveBayesClassifier();
+        model.fit(testCSV);
+    }
+
+    @Benchmark
+    public double evaluateJoinedSentences() throws IOException {
+        ArrayList<String> testSentences = readCSV(testCSV);
+        testSentences.remove(0);
+        int hit = 0;
+        ArrayList<String[]> testWords = preprocess(testSentences);
+        for (String[] words: testWords) {
+            String sentence = String.join(" ", Arrays.copyOfRange(words, 1, words.length));
+            if (words[0].equals(model.classify(sentence))) hit++;
+        }
+        return (double) hit / testWords.size();
+    }
+
+    @Benchmark
+    public Evaluation evaluateSingleThread() throws IOException {
+        return Evaluator.evaluate(testCSV, model, 1);
+    }
+
+    @Benchmark
+    public Evaluation evaluateParallel() throws IOException {
+        return Evaluator.evaluate(testCSV, model, Runtime.getRuntime().availableProcessors());
+    }
+}
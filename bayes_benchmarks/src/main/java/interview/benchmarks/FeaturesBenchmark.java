@@ -0,0 +1,72 @@
+package interview.benchmarks;
+
+import interview.core.Features;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Features Benchmark</h1>
+ * Measures NaiveBayesClassifier.classify of the training program and of the server
+ * for the models of the words alone, of the word n-grams and of the hashed features,
+ * given as "n-gram order/hash bits". The setup prints the size of the binary model
+ * file and the estimated memory of the server model of every variant.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeaturesBenchmark {
+
+    @Param({"1/0", "2/0", "3/0", "1/18", "2/18", "3/18"})
+    String features;
+
+    @Param({"short", "long"})
+    String sentenceKind;
+
+    String sentence;
+    interview.test.NaiveBayesClassifier trainingModel;
+    interview.bayes.NaiveBayesClassifier serverModel;
+
+    @Setup
+    public void setUp() throws IOException {
+        sentence = BenchmarkData.sentence(sentenceKind);
+        String[] parts = features.split("/");
+        trainingModel = new interview.test.NaiveBayesClassifier(
+                new Features(Integer.parseInt(parts[0]), Integer.parseInt(parts[1])));
+        trainingModel.fit(BenchmarkData.trainCSV().toString());
+        Path modelFile = BenchmarkData.temporaryFile(".bin");
+        trainingModel.writeBinaryParams(modelFile.toString());
+        serverModel = interview.bayes.NaiveBayesClassifier.fromFile(modelFile);
+        System.out.printf("%n%s: model file %d bytes, server model %d bytes%n",
+                trainingModel.features(), Files.size(modelFile), serverModel.memoryBytes());
+    }
+
+    @Benchmark
+    public String classifyTraining() {
+        return trainingModel.classify(sentence);
+    }
+
+    @Benchmark
+    public String classifyServer() {
+        return serverModel.classify(sentence);
+    }
+}
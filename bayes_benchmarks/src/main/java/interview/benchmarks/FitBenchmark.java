@@ -0,0 +1,59 @@
+package interview.benchmarks;
+
+import interview.test.NaiveBayesClassifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Fit Benchmark</h1>
+ * Measures training from train.csv and from a corpus of train.csv repeated scale
+ * times, counted by one thread and by all available processors.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FitBenchmark {
+
+    @Param({"1", "20"})
+    int scale;
+
+    String trainCSV;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        trainCSV = BenchmarkData.scaledTrainCSV(scale).toString();
+    }
+
+    @Benchmark
+    public NaiveBayesClassifier fitSingleThread() throws IOException {
+        NaiveBayesClassifier model = new NaiveBayesClassifier();
+        model.fit(trainCSV, 1);
+        return model;
+    }
+
+    @Benchmark
+    public NaiveBayesClassifier fitParallel() throws IOException {
+        NaiveBayesClassifier model = new NaiveBayesClassifier();
+        model.fit(trainCSV);
+        return model;
+    }
+}
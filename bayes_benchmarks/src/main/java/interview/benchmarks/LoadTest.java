@@ -0,0 +1,198 @@
+package interview.benchmarks;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <h1>Load Test</h1>
+ * The LoadTest program measures the throughput and the latency percentiles of the
+ * POST /api endpoint of a running server. The given number of concurrent clients
+ * each keep one request in flight, sending the sentences of test.csv in turn until
+ * the test ends, which keeps as many connections open as there are clients.
+ * Requests of the warm-up are not measured.
+ * <pre>
+ * java -cp benchmarks.jar interview.benchmarks.LoadTest [url] [clients] [seconds] [warm-up seconds]
+ * </pre>
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        URI uri = URI.create(args.length > 0 ? args[0] : "http://localhost:8080/api");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 30;
+        long warmUpSeconds = args.length > 3 ? Long.parseLong(args[3]) : 5;
+
+        String[] bodies = requestBodies(BenchmarkData.trainCSV().resolveSibling("test.csv"));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        long start = System.nanoTime();
+        long measureFrom = start + warmUpSeconds * 1_000_000_000L;
+        long end = measureFrom + seconds * 1_000_000_000L;
+
+        ExecutorService responseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        Client[] running = new Client[clients];
+        CountDownLatch finished = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            running[i] = new Client(client, responseExecutor, uri, bodies, i, measureFrom, end, finished);
+            running[i].send();
+        }
+        finished.await();
+        responseExecutor.shutdown();
+
+        long requests = 0;
+        long errors = 0;
+        for (Client c : running) {
+            requests += c.latencyCount;
+            errors += c.errors.get();
+        }
+        long[] latencies = new long[(int) requests];
+        int filled = 0;
+        for (Client c : running) {
+            System.arraycopy(c.latencies, 0, latencies, filled, c.latencyCount);
+            filled += c.latencyCount;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("clients %d, %d s: %d requests, %d errors, %.1f requests/s%n",
+                clients, seconds, requests, errors, requests / (double) seconds);
+        System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), percentile(latencies, 1.0));
+    }
+
+    /**
+     * Returns the json request bodies of the sentences of the CSV file.
+     *
+     * @param pathCSV path to the CSV file
+     * @return the request bodies
+     */
+    private static String[] requestBodies(Path pathCSV) throws IOException {
+        List<String> rows = Files.readAllLines(pathCSV, StandardCharsets.UTF_8);
+        return rows.subList(1, rows.size()).stream()
+                .map(row -> row.split(";", -1)[1])
+                .map(text -> "{\"text\": " + JSONObject.quote(text) + "}")
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Returns the percentile of the sorted latencies in milliseconds.
+     *
+     * @param sortedLatencies the sorted latencies in nanoseconds
+     * @param fraction the percentile as a fraction
+     * @return the percentile in milliseconds
+     */
+    private static double percentile(long[] sortedLatencies, double fraction) {
+        if (sortedLatencies.length == 0) return Double.NaN;
+        int index = (int) Math.ceil(fraction * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    /**
+     * A client sending its next request as soon as the previous response arrives.
+     */
+    private static final class Client {
+
+        /**
+         * The shared HTTP client.
+         */
+        private final HttpClient client;
+        /**
+         * The executor handling the responses.
+         */
+        private final Executor responseExecutor;
+        /**
+         * The URI of the endpoint.
+         */
+        private final URI uri;
+        /**
+         * The request bodies sent in turn.
+         */
+        private final String[] bodies;
+        /**
+         * The System.nanoTime from which the requests are measured.
+         */
+        private final long measureFrom;
+        /**
+         * The System.nanoTime when the test ends.
+         */
+        private final long end;
+        /**
+         * The latch counting down the finished clients.
+         */
+        private final CountDownLatch finished;
+        /**
+         * Number of failed requests.
+         */
+        private final AtomicLong errors = new AtomicLong();
+        /**
+         * Index of the next request body.
+         */
+        private int next;
+        /**
+         * The measured latencies in nanoseconds.
+         */
+        private long[] latencies = new long[1024];
+        /**
+         * Number of the measured latencies.
+         */
+        private int latencyCount;
+
+        Client(HttpClient client, Executor responseExecutor, URI uri, String[] bodies, int first,
+               long measureFrom, long end, CountDownLatch finished) {
+            this.client = client;
+            this.responseExecutor = responseExecutor;
+            this.uri = uri;
+            this.bodies = bodies;
+            this.next = first % bodies.length;
+            this.measureFrom = measureFrom;
+            this.end = end;
+            this.finished = finished;
+        }
+
+        /**
+         * Sends the next request, or finishes when the test is over.
+         */
+        void send() {
+            long sent = System.nanoTime();
+            if (sent >= end) {
+                finished.countDown();
+                return;
+            }
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(bodies[next]))
+                    .build();
+            next = (next + 1) % bodies.length;
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenCompleteAsync((response, error) -> {
+                long received = System.nanoTime();
+                if (error != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                } else if (sent >= measureFrom && received <= end) {
+                    if (latencyCount == latencies.length) latencies = Arrays.copyOf(latencies, latencyCount * 2);
+                    latencies[latencyCount++] = received - sent;
+                }
+                send();
+            }, responseExecutor);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package interview.benchmarks;
+
+import interview.bayes.MicroBatcher;
+import interview.bayes.NaiveBayesClassifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Micro Batcher Benchmark</h1>
+ * Measures 16 threads classifying the sentences of test.csv by the server model
+ * loaded from the binary model file: each on its own thread, and coalesced by the
+ * MicroBatcher with the given longest wait for more sentences in microseconds.
+ * The average time is the latency of one classification including its wait.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class MicroBatcherBenchmark {
+
+    @Param({"0", "100"})
+    long maxDelayMicros;
+
+    String[] sentences;
+    NaiveBayesClassifier model;
+    MicroBatcher batcher;
+
+    @State(Scope.Thread)
+    public static class Next {
+        int sentence;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<String> rows = Files.readAllLines(BenchmarkData.trainCSV().resolveSibling("test.csv"), StandardCharsets.UTF_8);
+        sentences = rows.subList(1, rows.size()).stream().map(row -> row.split(";", -1)[1]).toArray(String[]::new);
+        interview.test.NaiveBayesClassifier trainingModel = new interview.test.NaiveBayesClassifier();
+        trainingModel.fit(BenchmarkData.trainCSV().toString());
+        Path modelFile = BenchmarkData.temporaryFile(".bin");
+        trainingModel.writeBinaryParams(modelFile.toString());
+        model = NaiveBayesClassifier.fromFile(modelFile);
+        batcher = new MicroBatcher(true, 64, maxDelayMicros, 4096, 1000, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        batcher.stop();
+    }
+
+    @Benchmark
+    public String classifyPerThread(Next next) {
+        return model.classify(sentences[next.sentence++ % sentences.length], null);
+    }
+
+    @Benchmark
+    public String classifyBatched(Next next) {
+        return batcher.classify(model, sentences[next.sentence++ % sentences.length], null);
+    }
+}
@@ -0,0 +1,69 @@
+package interview.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Params Benchmark</h1>
+ * Measures writing the model parameters by the training program and loading them
+ * by the server, both in json and in the binary model file.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParamsBenchmark {
+
+    interview.test.NaiveBayesClassifier trainingModel;
+    Path jsonFile;
+    Path binaryFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        trainingModel = new interview.test.NaiveBayesClassifier();
+        trainingModel.fit(BenchmarkData.trainCSV().toString());
+        jsonFile = BenchmarkData.temporaryFile(".json");
+        binaryFile = BenchmarkData.temporaryFile(".bin");
+        trainingModel.writeParams(jsonFile.toString());
+        trainingModel.writeBinaryParams(binaryFile.toString());
+    }
+
+    @Benchmark
+    public Path writeJsonParams() {
+        trainingModel.writeParams(jsonFile.toString());
+        return jsonFile;
+    }
+
+    @Benchmark
+    public Path writeBinaryParams() {
+        trainingModel.writeBinaryParams(binaryFile.toString());
+        return binaryFile;
+    }
+
+    @Benchmark
+    public interview.bayes.NaiveBayesClassifier loadJsonParams() throws IOException {
+        return interview.bayes.NaiveBayesClassifier.fromFile(jsonFile);
+    }
+
+    @Benchmark
+    public interview.bayes.NaiveBayesClassifier loadBinaryParams() throws IOException {
+        return interview.bayes.NaiveBayesClassifier.fromFile(binaryFile);
+    }
+}
@@ -0,0 +1,54 @@
+package interview.benchmarks;
+
+import interview.core.Preprocessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Preprocessor Benchmark</h1>
+ * Measures Preprocessor.preprocess building the array of words and passing the
+ * words to a visitor.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreprocessorBenchmark {
+
+    @Param({"short", "long"})
+    String sentenceKind;
+
+    String sentence;
+
+    @Setup
+    public void setUp() {
+        sentence = BenchmarkData.sentence(sentenceKind);
+    }
+
+    @Benchmark
+    public String[] preprocess() {
+        return Preprocessor.preprocess(sentence);
+    }
+
+    @Benchmark
+    public void preprocessVisitor(Blackhole blackhole) {
+        Preprocessor.preprocess(sentence, (word, length) -> blackhole.consume(length));
+    }
+}
@@ -0,0 +1,268 @@
+package interview.benchmarks;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>Server Benchmark</h1>
+ * The ServerBenchmark program compares the Spring server with the LiteServer, both
+ * started from the same server jar with the same JVM options. Every server is
+ * started the given number of times and measured from the start of its process to
+ * its first classified POST /api, with the resident memory of the process at that
+ * moment, then until it reports ready, followed by the latencies of the first
+ * requests sent one by one. It is then started once more and load tested by LoadTest, printing the
+ * throughput and the latencies, and the resident memory after the load and its peak.
+ * When the jar was built with the cds profile, the servers are also started from
+ * the jars of target/cds, without and with their class data sharing archives. No
+ * server is load tested with 0 clients. The servers run in the folder of the model,
+ * the folder above the jar's target folder, and the resident memory is read from
+ * /proc, so it is only measured on Linux.
+ * <pre>
+ * java -cp benchmarks.jar interview.benchmarks.ServerBenchmark [server jar] [clients] [seconds] [warm-up seconds] [starts]
+ * </pre>
+ * The JVM options of the servers are set by the system property bayes.server.jvm,
+ * e.g. -Dbayes.server.jvm="-Xmx256m -XX:+UseSerialGC".
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+public class ServerBenchmark {
+
+    /**
+     * The port the servers listen on.
+     */
+    private static final int PORT = 8097;
+    /**
+     * The longest wait for a server to classify its first request.
+     */
+    private static final Duration START_TIMEOUT = Duration.ofSeconds(120);
+    /**
+     * The number of requests sent one by one after the server is ready.
+     */
+    private static final int FIRST_REQUESTS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Path jar = Paths.get(args.length > 0 ? args[0] : "bayes_spring/target/bayes-0.0.1-SNAPSHOT.jar").toAbsolutePath();
+        String clients = args.length > 1 ? args[1] : "200";
+        String seconds = args.length > 2 ? args[2] : "20";
+        String warmUpSeconds = args.length > 3 ? args[3] : "5";
+        int starts = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+        if (!Files.isRegularFile(jar)) throw new IllegalArgumentException("No server jar " + jar);
+
+        List<String> jvmOptions = new ArrayList<>();
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        jvmOptions.add(java);
+        String options = System.getProperty("bayes.server.jvm", "").trim();
+        if (!options.isEmpty()) jvmOptions.addAll(Arrays.asList(options.split("\\s+")));
+        jvmOptions.add("-Dserver.port=" + PORT);
+        jvmOptions.add("-Dbayes.model.watch=false");
+
+        Map<String, List<String>> servers = new LinkedHashMap<>();
+        servers.put("spring", command(jvmOptions, "-jar", jar.toString()));
+        servers.put("lite", command(jvmOptions, "-Dloader.main=interview.bayes.LiteServer", "-cp", jar.toString(),
+                "org.springframework.boot.loader.PropertiesLauncher"));
+        Path cds = jar.resolveSibling("cds");
+        Path cdsJar = cds.resolve(jar.getFileName().toString().replace(".jar", "-cds.jar"));
+        if (Files.isRegularFile(cdsJar)) {
+            servers.put("spring-thin", command(jvmOptions, "-jar", cdsJar.toString()));
+            servers.put("spring-cds", command(jvmOptions, "-XX:SharedArchiveFile=" + cds.resolve("bayes.jsa"),
+                    "-jar", cdsJar.toString()));
+            servers.put("lite-thin", command(jvmOptions, "-cp", cdsJar.toString(), "interview.bayes.LiteServer"));
+            servers.put("lite-cds", command(jvmOptions, "-XX:SharedArchiveFile=" + cds.resolve("lite.jsa"),
+                    "-cp", cdsJar.toString(), "interview.bayes.LiteServer"));
+        }
+
+        Path directory = jar.getParent().getParent();
+        for (Map.Entry<String, List<String>> entry : servers.entrySet()) {
+            String server = entry.getKey();
+            List<String> command = entry.getValue();
+            long[] startupMillis = new long[starts];
+            long[] startupKiloBytes = new long[starts];
+            long[] readyMillis = new long[starts];
+            long[] firstMeanMicros = new long[starts];
+            long[] firstMaxMicros = new long[starts];
+            for (int i = 0; i < starts; i++) {
+                long launched = System.nanoTime();
+                Process process = start(command, directory);
+                try {
+                    startupMillis[i] = (awaitFirstLabel(process) - launched) / 1_000_000;
+                    startupKiloBytes[i] = status(process, "VmRSS");
+                    readyMillis[i] = (awaitReady(process) - launched) / 1_000_000;
+                    long[] latencies = firstRequests();
+                    firstMeanMicros[i] = Arrays.stream(latencies).sum() / latencies.length / 1000;
+                    firstMaxMicros[i] = Arrays.stream(latencies).max().getAsLong() / 1000;
+                } finally {
+                    stop(process);
+                }
+            }
+            Arrays.sort(startupMillis);
+            Arrays.sort(startupKiloBytes);
+            Arrays.sort(readyMillis);
+            Arrays.sort(firstMeanMicros);
+            Arrays.sort(firstMaxMicros);
+            System.out.printf("%s: startup to the first label median %d ms (min %d, max %d), RSS %.1f MB, %d starts%n",
+                    server, startupMillis[starts / 2], startupMillis[0], startupMillis[starts - 1],
+                    startupKiloBytes[starts / 2] / 1024.0, starts);
+            System.out.printf("%s: ready median %d ms, the first %d requests after ready median mean %d us, max %d us%n",
+                    server, readyMillis[starts / 2], FIRST_REQUESTS, firstMeanMicros[starts / 2], firstMaxMicros[starts / 2]);
+
+            if (clients.equals("0")) continue;
+            Process process = start(command, directory);
+            try {
+                awaitFirstLabel(process);
+                LoadTest.main(new String[]{"http://localhost:" + PORT + "/api", clients, seconds, warmUpSeconds});
+                System.out.printf("%s: RSS after the load %.1f MB, peak %.1f MB%n", server,
+                        status(process, "VmRSS") / 1024.0, status(process, "VmHWM") / 1024.0);
+            } finally {
+                stop(process);
+            }
+        }
+    }
+
+    /**
+     * Returns the command of the java with the JVM options and the arguments.
+     *
+     * @param jvmOptions the java and the JVM options
+     * @param arguments the arguments
+     * @return the command
+     */
+    private static List<String> command(List<String> jvmOptions, String... arguments) {
+        List<String> command = new ArrayList<>(jvmOptions);
+        command.addAll(Arrays.asList(arguments));
+        return command;
+    }
+
+    /**
+     * Starts the server process in the directory, discarding its output.
+     *
+     * @param command the command of the server
+     * @param directory the working directory of the server
+     * @return the started process
+     */
+    private static Process start(List<String> command, Path directory) throws IOException {
+        return new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    /**
+     * Waits until the server labels a POST /api and returns the System.nanoTime
+     * of the label.
+     *
+     * @param process the server process
+     * @return the System.nanoTime of the first label
+     */
+    private static long awaitFirstLabel(Process process) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/api"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"text\": \"" + BenchmarkData.SHORT_SENTENCE + "\"}"))
+                .build();
+        long deadline = System.nanoTime() + START_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) throw new IllegalStateException("The server exited with " + process.exitValue());
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) return System.nanoTime();
+            } catch (ConnectException e) {
+                // not listening yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("The server did not label a request in " + START_TIMEOUT);
+    }
+
+    /**
+     * Waits until the server reports ready and returns the System.nanoTime it did. A
+     * server without GET /actuator/health/readiness is ready once it labels requests.
+     *
+     * @param process the server process
+     * @return the System.nanoTime of the ready report
+     */
+    private static long awaitReady(Process process) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/actuator/health/readiness")).build();
+        long deadline = System.nanoTime() + START_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) throw new IllegalStateException("The server exited with " + process.exitValue());
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status == 200 || status == 404) return System.nanoTime();
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("The server did not report ready in " + START_TIMEOUT);
+    }
+
+    /**
+     * Sends the sentences of test.csv to POST /api one by one and returns the latencies
+     * of the first requests.
+     *
+     * @return the latencies in nanoseconds
+     */
+    private static long[] firstRequests() throws IOException, InterruptedException {
+        List<String> rows = Files.readAllLines(BenchmarkData.trainCSV().resolveSibling("test.csv"), StandardCharsets.UTF_8);
+        HttpClient client = HttpClient.newHttpClient();
+        long[] latencies = new long[FIRST_REQUESTS];
+        for (int i = 0; i < FIRST_REQUESTS; i++) {
+            String text = rows.get(1 + i % (rows.size() - 1)).split(";", -1)[1];
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + PORT + "/api"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"text\": " + JSONObject.quote(text) + "}"))
+                    .build();
+            long sent = System.nanoTime();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            latencies[i] = System.nanoTime() - sent;
+            if (response.statusCode() != 200) throw new IOException("Request failed with " + response.statusCode());
+        }
+        return latencies;
+    }
+
+    /**
+     * Returns the value in kB of the field of the status of the process, -1 when
+     * the status cannot be read.
+     *
+     * @param process the process
+     * @param field the field, e.g. VmRSS or VmHWM
+     * @return the value in kB
+     */
+    private static long status(Process process, String field) {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc", Long.toString(process.pid()), "status"),
+                    StandardCharsets.UTF_8)) {
+                if (line.startsWith(field + ":")) {
+                    return Long.parseLong(line.substring(field.length() + 1).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException e) {
+            // not Linux
+        }
+        return -1;
+    }
+
+    /**
+     * Stops the server process and waits until it exits.
+     *
+     * @param process the server process
+     */
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        process.waitFor();
+    }
+}
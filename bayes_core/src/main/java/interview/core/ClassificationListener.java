@@ -0,0 +1,23 @@
+package interview.core;
+
+/**
+ * <h1>Classification Listener</h1>
+ * The ClassificationListener program is notified of every classified sentence with
+ * the determined label and the numbers of its words, so statistics of the served
+ * traffic can be collected without another pass over the sentence. The words of a
+ * model with hashed features all have a bucket, so none of them is counted missing.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+public interface ClassificationListener {
+
+    /**
+     * Called after a sentence is classified.
+     *
+     * @param label the determined label
+     * @param words the number of scored words of the sentence, without their n-grams
+     * @param unknownWords the number of those words missing in the model, 0 for hashed features
+     */
+    void classified(String label, int words, int unknownWords);
+}
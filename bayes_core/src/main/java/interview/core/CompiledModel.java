@@ -0,0 +1,615 @@
+package interview.core;
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h1>Compiled Model</h1>
+ * The CompiledModel program is the scoring form of the trained classifier. The features
+ * of the words are indexed by dense ids or hashed into buckets and the natural
+ * logarithms of the likelihoods, priors and default likelihoods of unseen words are
+ * precomputed, so classifying is only array lookups and additions. The model is the
+ * single scoring engine of the training program and of the server: the trained
+ * model is compiled on the heap, the server maps it from the binary model file.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+public class CompiledModel {
+
+    /**
+     * The smallest number of labels whose rows are copied out of the buffer in bulk,
+     * shorter rows are faster to copy one value at a time.
+     */
+    private static final int BULK_ROW_LENGTH = 16;
+
+    /**
+     * The scored features of the words.
+     */
+    private final Features features;
+    /**
+     * The labels in the order of the scores.
+     */
+    private final String[] labels;
+    /**
+     * The index of the known features, empty for hashed features.
+     */
+    private final TermIndex terms;
+    /**
+     * Log-likelihoods of the features, row-major by feature id or bucket: [id * labels.length + label].
+     * Either a heap buffer or a view of the memory-mapped model file.
+     */
+    private final DoubleBuffer logLikelihoods;
+    /**
+     * Log-likelihoods used for the words missing in the index.
+     */
+    private final double[] logDefaultLikelihoods;
+    /**
+     * Log-priors of the labels.
+     */
+    private final double[] logPriors;
+
+    /**
+     * Class constructor.
+     *
+     * @param features the scored features of the words
+     * @param labels the labels in the order of the scores
+     * @param terms the index of the known features, empty for hashed features
+     * @param logLikelihoods the row-major log-likelihoods of the features
+     * @param logDefaultLikelihoods the log-likelihoods of the unseen words
+     * @param logPriors the log-priors of the labels
+     * @throws IllegalArgumentException when the rows of the labels do not fit in a buffer
+     */
+    public CompiledModel(Features features, String[] labels, TermIndex terms, DoubleBuffer logLikelihoods,
+                         double[] logDefaultLikelihoods, double[] logPriors){
+        likelihoodCount(features.hashed() ? features.buckets() : terms.size(), labels.length);
+        this.features = features;
+        this.labels = labels;
+        this.terms = terms;
+        this.logLikelihoods = logLikelihoods;
+        this.logDefaultLikelihoods = logDefaultLikelihoods;
+        this.logPriors = logPriors;
+    }
+
+    /**
+     * Returns the number of log-likelihoods of the rows of the labels, failing when
+     * they do not fit in a buffer, whose positions are ints. The offset of every row
+     * of a model is then an int as well.
+     *
+     * @param rows the number of rows, the terms or the buckets
+     * @param labels the number of labels
+     * @return the number of log-likelihoods
+     * @throws IllegalArgumentException when there are more than Integer.MAX_VALUE of them
+     */
+    public static int likelihoodCount(long rows, int labels){
+        if (rows < 0 || labels < 0 || rows * labels > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported model of " + rows + " rows and " + labels
+                    + " labels, more than " + Integer.MAX_VALUE + " log-likelihoods");
+        }
+        return (int) (rows * labels);
+    }
+
+    /**
+     * Returns the label with the given index.
+     *
+     * @param index the index of the label
+     * @return the label
+     */
+    public String label(int index){
+        return labels[index];
+    }
+
+    /**
+     * Returns the scored features of the words.
+     *
+     * @return the features
+     */
+    public Features features(){
+        return features;
+    }
+
+    /**
+     * Returns the labels in the order of the scores.
+     *
+     * @return the labels
+     */
+    public String[] labels(){
+        return labels;
+    }
+
+    /**
+     * Returns the index of the known features.
+     *
+     * @return the index of the features
+     */
+    public TermIndex terms(){
+        return terms;
+    }
+
+    /**
+     * Returns the row-major log-likelihoods of the features.
+     *
+     * @return the log-likelihoods
+     */
+    public DoubleBuffer logLikelihoods(){
+        return logLikelihoods;
+    }
+
+    /**
+     * Returns the log-likelihoods of the unseen words.
+     *
+     * @return the default log-likelihoods
+     */
+    public double[] logDefaultLikelihoods(){
+        return logDefaultLikelihoods;
+    }
+
+    /**
+     * Returns the log-priors of the labels.
+     *
+     * @return the log-priors
+     */
+    public double[] logPriors(){
+        return logPriors;
+    }
+
+    /**
+     * Returns the estimated number of bytes of the model, the index of the words and
+     * the log-likelihoods, whether on the heap or mapped.
+     *
+     * @return the number of bytes
+     */
+    public long memoryBytes(){
+        return terms.memoryBytes() + 8L * logLikelihoods.capacity();
+    }
+
+    /**
+     * Classifies the given sentence and returns the index of the most probable label.
+     *
+     * @param sentence the sentence to label
+     * @return the index of the determined label
+     */
+    public int classify(String sentence){
+        return classify(sentence, null);
+    }
+
+    /**
+     * Classifies the given sentence and returns the index of the most probable label,
+     * notifying the listener unless it is null.
+     *
+     * @param sentence the sentence to label
+     * @param listener the listener of the classification or null
+     * @return the index of the determined label
+     */
+    public int classify(String sentence, ClassificationListener listener){
+        if (labels.length == 0) throw new IllegalStateException("The model has no labels");
+        Scores scores = new Scores(labels.length);
+        Preprocessor.preprocess(sentence, features.visitor(scores));
+        addRow(scores.jointProbabilities, logPriors, 0);
+        int label = arrayMax(scores.jointProbabilities);
+        if (listener != null) listener.classified(labels[label], scores.words, scores.unknownWords);
+        return label;
+    }
+
+    /**
+     * Returns a new scorer of sentences by the model.
+     *
+     * @return the scorer
+     */
+    public Scorer scorer(){
+        return new Scorer();
+    }
+
+    /**
+     * Classifies the given sentence and returns the determined label together with
+     * the posterior probabilities of all labels and the known words that contributed
+     * the most to the label. The words are ranked in the same pass as the scoring,
+     * see TopWords. The word of a bucket of hashed features is the first feature of
+     * the sentence in the bucket. The listener is notified unless it is null.
+     *
+     * @param sentence the sentence to label
+     * @param topWords the number of the returned words
+     * @param listener the listener of the classification or null
+     * @return the explained classification
+     */
+    public Explanation explain(String sentence, int topWords, ClassificationListener listener){
+        if (labels.length == 0) throw new IllegalStateException("The model has no labels");
+        ExplainingScores scores = new ExplainingScores(labels.length, topWords);
+        Preprocessor.preprocess(sentence, features.visitor(scores));
+        addRow(scores.jointProbabilities, logPriors, 0);
+        int label = arrayMax(scores.jointProbabilities);
+        if (listener != null) listener.classified(labels[label], scores.words, scores.unknownWords);
+
+        double[] posteriors = posteriors(scores.jointProbabilities);
+        TopWords top = scores.topWords[label];
+        top.sort();
+        String[] words = new String[top.size];
+        for (int i = 0; i < top.size; i++) {
+            words[i] = features.hashed() ? scores.bucketFeatures.get(top.ids[i]) : terms.term(top.ids[i]);
+        }
+        return new Explanation(labels[label], labels, posteriors, words, Arrays.copyOf(top.scores, top.size));
+    }
+
+    /**
+     * Returns the posterior probabilities normalized from the joint log-probabilities
+     * by the log-sum-exp, which does not underflow for long sentences.
+     *
+     * @param jointProbabilities the joint log-probabilities of the labels
+     * @return the posterior probabilities
+     */
+    static double[] posteriors(double[] jointProbabilities){
+        double max = jointProbabilities[arrayMax(jointProbabilities)];
+        double sum = 0;
+        for (double jointProbability : jointProbabilities) {
+            sum += Math.exp(jointProbability - max);
+        }
+        double logSum = max + Math.log(sum);
+        double[] posteriors = new double[jointProbabilities.length];
+        for (int i = 0; i < posteriors.length; i++) {
+            posteriors[i] = Math.exp(jointProbabilities[i] - logSum);
+        }
+        return posteriors;
+    }
+
+    /**
+     * Returns the row of the log-likelihoods of the feature: its id in the index, or
+     * its bucket for hashed features. Empty words and features missing in the index
+     * have no row.
+     *
+     * @param feature the buffer holding the feature
+     * @param length the length of the feature
+     * @return the row of the feature, or -1
+     */
+    private int row(char[] feature, int length){
+        if (!features.hashed()) return terms.find(feature, length);
+        return length == 0 ? -1 : features.bucket(feature, length);
+    }
+
+    /**
+     * Element-wise adds a row of an array to an existing array elements.
+     *
+     * @param modifiedArray the array that gets modified
+     * @param addedArray the array holding the added row
+     * @param offset the start of the row
+     */
+    private static void addRow(double[] modifiedArray, double[] addedArray, int offset){
+        for (int i = 0; i < modifiedArray.length; i++){
+            modifiedArray[i] += addedArray[offset + i];
+        }
+    }
+
+    /**
+     * Returns the first index of the array maximum.
+     *
+     * @param array the array for maximum localisation
+     * @return the maximum index
+     */
+    private static int arrayMax(double[] array){
+        int maxIndex = 0;
+        for (int i = 0; i < array.length; i++)
+            maxIndex = Double.compare(array[i], array[maxIndex]) > 0 ? i : maxIndex;
+        return maxIndex;
+    }
+
+    /**
+     * Scores the visited words of a sentence, one sentence after another. A scorer
+     * is reused by a single thread without allocating per sentence.
+     */
+    public final class Scorer implements Preprocessor.WordVisitor {
+
+        /**
+         * The scores of the sentence being visited.
+         */
+        private final Scores scores;
+        /**
+         * The visitor passing the features of the words to score.
+         */
+        private final Preprocessor.WordVisitor featureVisitor;
+
+        /**
+         * Class constructor.
+         */
+        private Scorer(){
+            this.scores = new Scores(labels.length);
+            this.featureVisitor = features.visitor(scores);
+        }
+
+        @Override
+        public void visit(char[] word, int length){
+            featureVisitor.visit(word, length);
+        }
+
+        /**
+         * Returns the index of the most probable label of the visited words and
+         * starts the next sentence.
+         *
+         * @return the index of the determined label
+         */
+        public int finish(){
+            return finish(null);
+        }
+
+        /**
+         * Returns the index of the most probable label of the visited words and
+         * starts the next sentence, notifying the listener unless it is null.
+         *
+         * @param listener the listener of the classification or null
+         * @return the index of the determined label
+         */
+        public int finish(ClassificationListener listener){
+            addRow(scores.jointProbabilities, logPriors, 0);
+            int label = arrayMax(scores.jointProbabilities);
+            if (listener != null) listener.classified(labels[label], scores.words, scores.unknownWords);
+            Arrays.fill(scores.jointProbabilities, 0);
+            scores.words = 0;
+            scores.unknownWords = 0;
+            Features.reset(featureVisitor);
+            return label;
+        }
+    }
+
+    /**
+     * Adds up the log-likelihoods of the visited words of a sentence. The row of
+     * a known word is copied out of the buffer first, so adding it is a loop over
+     * two contiguous arrays, whatever the number of labels.
+     */
+    private class Scores implements Preprocessor.WordVisitor {
+
+        /**
+         * The joint log-probabilities of the labels.
+         */
+        final double[] jointProbabilities;
+        /**
+         * The log-likelihoods of the visited word.
+         */
+        final double[] row;
+        /**
+         * Number of visited words, not counting their n-grams.
+         */
+        int words;
+        /**
+         * Number of visited words missing in the index, not counted for hashed
+         * features, where every non-empty word has a bucket.
+         */
+        int unknownWords;
+        /**
+         * The view of the log-likelihoods the long rows are copied through.
+         */
+        private DoubleBuffer rows;
+
+        /**
+         * Class constructor.
+         *
+         * @param labelCount the number of labels
+         */
+        Scores(int labelCount){
+            this.jointProbabilities = new double[labelCount];
+            this.row = new double[labelCount];
+        }
+
+        @Override
+        public void visit(char[] word, int length){
+            words++;
+            if (!score(word, length) && !features.hashed()) unknownWords++;
+        }
+
+        @Override
+        public void visitNgram(char[] ngram, int length){
+            score(ngram, length);
+        }
+
+        /**
+         * Adds the log-likelihoods of the feature, the default ones when it has no
+         * row, and returns whether it has a row.
+         *
+         * @param word the buffer holding the feature
+         * @param length the length of the feature
+         * @return true for a feature found in the index or hashed
+         */
+        private boolean score(char[] word, int length){
+            int id = row(word, length);
+            if (id < 0) {
+                addRow(jointProbabilities, logDefaultLikelihoods, 0);
+                return false;
+            } else {
+                // no overflow, the constructor bounds the rows times the labels by Integer.MAX_VALUE
+                int offset = id * row.length;
+                if (row.length < BULK_ROW_LENGTH) {
+                    for (int i = 0; i < row.length; i++) row[i] = logLikelihoods.get(offset + i);
+                } else {
+                    if (rows == null) rows = logLikelihoods.duplicate();
+                    rows.position(offset);
+                    rows.get(row);
+                }
+                addRow(jointProbabilities, row, 0);
+                knownWord(id, row, word, length);
+                return true;
+            }
+        }
+
+        /**
+         * Called for every visited word found in the index or hashed.
+         *
+         * @param id the id or the bucket of the word
+         * @param row the log-likelihoods of the word
+         * @param word the buffer holding the word
+         * @param length the length of the word
+         */
+        void knownWord(int id, double[] row, char[] word, int length){
+        }
+    }
+
+    /**
+     * Adds up the log-likelihoods of the visited words of a sentence and ranks the
+     * known words by their contribution to every label.
+     */
+    private final class ExplainingScores extends Scores {
+
+        /**
+         * The top words of every label.
+         */
+        final TopWords[] topWords;
+        /**
+         * The first visited feature of every bucket, for hashed features.
+         */
+        final Map<Integer, String> bucketFeatures = new HashMap<>();
+
+        /**
+         * Class constructor.
+         *
+         * @param labelCount the number of labels
+         * @param topWordCount the number of the top words kept for every label
+         */
+        ExplainingScores(int labelCount, int topWordCount){
+            super(labelCount);
+            this.topWords = new TopWords[labelCount];
+            for (int i = 0; i < labelCount; i++) {
+                topWords[i] = new TopWords(topWordCount);
+            }
+        }
+
+        /**
+         * Adds the contribution of the word to every label: its log-likelihood in the
+         * label less its mean log-likelihood in the other labels.
+         *
+         * @param id the id or the bucket of the word
+         * @param row the log-likelihoods of the word
+         * @param word the buffer holding the word
+         * @param length the length of the word
+         */
+        @Override
+        void knownWord(int id, double[] row, char[] word, int length){
+            if (features.hashed()) bucketFeatures.putIfAbsent(id, new String(word, 0, length));
+            int labelCount = row.length;
+            double sum = 0;
+            for (double logLikelihood : row) {
+                sum += logLikelihood;
+            }
+            for (int i = 0; i < labelCount; i++) {
+                double logLikelihood = row[i];
+                double others = labelCount > 1 ? (sum - logLikelihood) / (labelCount - 1) : 0;
+                topWords[i].add(id, logLikelihood - others);
+            }
+        }
+    }
+
+    /**
+     * Keeps the ids of the words with the highest scores in a fixed-size min-heap of
+     * primitive arrays. The scores of a repeated word are added up while the word
+     * stays in the heap.
+     */
+    private static final class TopWords {
+
+        /**
+         * The ids of the words in heap order.
+         */
+        final int[] ids;
+        /**
+         * The scores of the words in heap order.
+         */
+        final double[] scores;
+        /**
+         * Number of words in the heap.
+         */
+        int size;
+
+        /**
+         * Class constructor.
+         *
+         * @param capacity the number of the kept words
+         */
+        TopWords(int capacity){
+            this.ids = new int[capacity];
+            this.scores = new double[capacity];
+        }
+
+        /**
+         * Adds the score of the word.
+         *
+         * @param id the id of the word
+         * @param score the added score
+         */
+        void add(int id, double score){
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    scores[i] += score;
+                    siftDown(siftUp(i));
+                    return;
+                }
+            }
+            if (size < ids.length) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (size > 0 && score > scores[0]) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Sorts the words by descending score, the heap order is lost.
+         */
+        void sort(){
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                int kept = size;
+                size = end;
+                siftDown(0);
+                size = kept;
+            }
+        }
+
+        /**
+         * Moves the word at the index up to its heap position.
+         *
+         * @param index the index of the word
+         * @return the new index of the word
+         */
+        private int siftUp(int index){
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (scores[parent] <= scores[index]) break;
+                swap(parent, index);
+                index = parent;
+            }
+            return index;
+        }
+
+        /**
+         * Moves the word at the index down to its heap position.
+         *
+         * @param index the index of the word
+         */
+        private void siftDown(int index){
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                if (left < size && scores[left] < scores[smallest]) smallest = left;
+                if (left + 1 < size && scores[left + 1] < scores[smallest]) smallest = left + 1;
+                if (smallest == index) return;
+                swap(index, smallest);
+                index = smallest;
+            }
+        }
+
+        /**
+         * Swaps two words of the heap.
+         *
+         * @param i the index of the first word
+         * @param j the index of the second word
+         */
+        private void swap(int i, int j){
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            double score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package interview.core;
+
+/**
+ * <h1>Explanation</h1>
+ * The Explanation program holds an explained classification: the determined label,
+ * the posterior probabilities of all labels and the known words of the sentence that
+ * contributed the most to the label, with their scores. The score of a word is its
+ * log-likelihood in the label less its mean log-likelihood in the other labels.
+ * The arrays are returned as they are, not copied.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+public class Explanation {
+
+    /**
+     * The determined label.
+     */
+    private final String label;
+    /**
+     * All labels in the order of the posteriors.
+     */
+    private final String[] labels;
+    /**
+     * The posterior probabilities of the labels.
+     */
+    private final double[] posteriors;
+    /**
+     * The top words by descending score.
+     */
+    private final String[] words;
+    /**
+     * The scores of the top words.
+     */
+    private final double[] scores;
+
+    /**
+     * Class constructor.
+     *
+     * @param label the determined label
+     * @param labels all labels in the order of the posteriors
+     * @param posteriors the posterior probabilities of the labels
+     * @param words the top words by descending score
+     * @param scores the scores of the top words
+     */
+    Explanation(String label, String[] labels, double[] posteriors, String[] words, double[] scores) {
+        this.label = label;
+        this.labels = labels;
+        this.posteriors = posteriors;
+        this.words = words;
+        this.scores = scores;
+    }
+
+    /**
+     * Returns the determined label.
+     *
+     * @return the label
+     */
+    public String label() {
+        return label;
+    }
+
+    /**
+     * Returns all labels in the order of the posteriors.
+     *
+     * @return the labels
+     */
+    public String[] labels() {
+        return labels;
+    }
+
+    /**
+     * Returns the posterior probabilities of the labels.
+     *
+     * @return the posteriors
+     */
+    public double[] posteriors() {
+        return posteriors;
+    }
+
+    /**
+     * Returns the top words by descending score.
+     *
+     * @return the words
+     */
+    public String[] words() {
+        return words;
+    }
+
+    /**
+     * Returns the scores of the top words.
+     *
+     * @return the scores
+     */
+    public double[] scores() {
+        return scores;
+    }
+}
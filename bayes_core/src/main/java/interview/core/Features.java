@@ -0,0 +1,245 @@
+package interview.core;
+
+/**
+ * <h1>Features</h1>
+ * The Features program describes the features the classifier counts and scores.
+ * Besides the words the features can include the word n-grams up to the given
+ * order: the bigrams and trigrams of consecutive non-empty words joined by a space,
+ * e.g. "not good". The features are either indexed by their text in a TermIndex,
+ * or hashed into a fixed number of buckets (the hashing trick), so the memory of
+ * the counts and the model does not depend on the vocabulary and scoring needs
+ * no index of strings. Different features can share a bucket. The hash of a
+ * feature is the FNV-1a hash of its characters finished by the MurmurHash3 mix,
+ * masked to the bucket bits.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+public final class Features {
+
+    /**
+     * The words alone, indexed by their text.
+     */
+    public static final Features UNIGRAMS = new Features(1, 0);
+    /**
+     * The highest supported n-gram order.
+     */
+    public static final int MAX_NGRAMS = 3;
+    /**
+     * The highest supported number of bucket bits.
+     */
+    public static final int MAX_HASH_BITS = 24;
+
+    /**
+     * The highest order of the word n-grams, 1 for the words alone.
+     */
+    private final int ngrams;
+    /**
+     * The number of bits of the bucket of a hashed feature, 0 when the features
+     * are indexed by their text.
+     */
+    private final int hashBits;
+
+    /**
+     * Class constructor.
+     *
+     * @param ngrams the highest order of the word n-grams, 1 to 3
+     * @param hashBits the number of bits of the buckets, 0 for the features indexed by their text
+     */
+    public Features(int ngrams, int hashBits){
+        if (ngrams < 1 || ngrams > MAX_NGRAMS) {
+            throw new IllegalArgumentException("Unsupported n-gram order " + ngrams);
+        }
+        if (hashBits < 0 || hashBits > MAX_HASH_BITS) {
+            throw new IllegalArgumentException("Unsupported number of hash bits " + hashBits);
+        }
+        this.ngrams = ngrams;
+        this.hashBits = hashBits;
+    }
+
+    /**
+     * Returns the highest order of the word n-grams.
+     *
+     * @return the n-gram order
+     */
+    public int ngrams(){
+        return ngrams;
+    }
+
+    /**
+     * Returns the number of bits of the buckets.
+     *
+     * @return the number of bits, 0 for the features indexed by their text
+     */
+    public int hashBits(){
+        return hashBits;
+    }
+
+    /**
+     * Returns whether the features are hashed into buckets.
+     *
+     * @return true for the hashed features
+     */
+    public boolean hashed(){
+        return hashBits > 0;
+    }
+
+    /**
+     * Returns the number of buckets of the hashed features.
+     *
+     * @return the number of buckets
+     */
+    public int buckets(){
+        return 1 << hashBits;
+    }
+
+    /**
+     * Returns the bucket of the hashed feature.
+     *
+     * @param feature the buffer holding the feature
+     * @param length the length of the feature
+     * @return the bucket of the feature
+     */
+    public int bucket(char[] feature, int length){
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ feature[i]) * 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash & (buckets() - 1);
+    }
+
+    /**
+     * Returns a visitor passing the features of the visited words of a sentence to
+     * the given visitor: every word followed by the n-grams it ends. The returned
+     * visitor is the given one for the words alone, otherwise it holds the previous
+     * words and is used for a single sentence, or reset between sentences.
+     *
+     * @param visitor the visitor receiving the features
+     * @return the visitor of the words
+     */
+    public Preprocessor.WordVisitor visitor(Preprocessor.WordVisitor visitor){
+        return ngrams == 1 ? visitor : new NgramVisitor(visitor, ngrams);
+    }
+
+    /**
+     * Forgets the previous words of a visitor returned by visitor, so it can visit
+     * the next sentence.
+     *
+     * @param visitor the visitor returned by visitor
+     */
+    public static void reset(Preprocessor.WordVisitor visitor){
+        if (visitor instanceof NgramVisitor) ((NgramVisitor) visitor).previousWords = 0;
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if (!(other instanceof Features)) return false;
+        return ngrams == ((Features) other).ngrams && hashBits == ((Features) other).hashBits;
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * ngrams + hashBits;
+    }
+
+    @Override
+    public String toString(){
+        return "ngrams " + ngrams + (hashed() ? ", hashed into 2^" + hashBits + " buckets" : "");
+    }
+
+    /**
+     * Passes every visited word and the n-grams of the non-empty words it ends to
+     * the next visitor, the n-grams by visitNgram. The n-grams are built in a reused
+     * buffer.
+     */
+    private static final class NgramVisitor implements Preprocessor.WordVisitor {
+
+        /**
+         * The visitor receiving the features.
+         */
+        private final Preprocessor.WordVisitor next;
+        /**
+         * The previous non-empty words, the latest last.
+         */
+        private final char[][] previous;
+        /**
+         * The lengths of the previous words.
+         */
+        private final int[] previousLengths;
+        /**
+         * The number of the previous words held, at most ngrams - 1.
+         */
+        int previousWords;
+        /**
+         * The buffer of the n-gram being passed.
+         */
+        private char[] ngram = new char[64];
+
+        /**
+         * Class constructor.
+         *
+         * @param next the visitor receiving the features
+         * @param ngrams the highest order of the n-grams
+         */
+        NgramVisitor(Preprocessor.WordVisitor next, int ngrams){
+            this.next = next;
+            this.previous = new char[ngrams - 1][16];
+            this.previousLengths = new int[ngrams - 1];
+        }
+
+        @Override
+        public void visit(char[] word, int length){
+            next.visit(word, length);
+            if (length == 0) return;
+            int ngramLength = length;
+            for (int n = 1; n <= previousWords; n++) {
+                ngramLength += previousLengths[previous.length - n] + 1;
+                if (ngramLength > ngram.length) ngram = new char[Math.max(ngram.length * 2, ngramLength)];
+                build(word, length, n);
+                next.visitNgram(ngram, ngramLength);
+            }
+            remember(word, length);
+        }
+
+        /**
+         * Builds the n-gram of the n latest previous words and the word in the n-gram buffer.
+         *
+         * @param word the buffer holding the word
+         * @param length the length of the word
+         * @param n the number of the previous words in the n-gram
+         */
+        private void build(char[] word, int length, int n){
+            int position = 0;
+            for (int i = previous.length - n; i < previous.length; i++) {
+                System.arraycopy(previous[i], 0, ngram, position, previousLengths[i]);
+                position += previousLengths[i];
+                ngram[position++] = ' ';
+            }
+            System.arraycopy(word, 0, ngram, position, length);
+        }
+
+        /**
+         * Keeps the word as the latest previous word, forgetting the earliest one.
+         *
+         * @param word the buffer holding the word
+         * @param length the length of the word
+         */
+        private void remember(char[] word, int length){
+            if (previous.length == 0) return;
+            char[] reused = previous[0];
+            System.arraycopy(previous, 1, previous, 0, previous.length - 1);
+            System.arraycopy(previousLengths, 1, previousLengths, 0, previousLengths.length - 1);
+            if (reused.length < length) reused = new char[Math.max(reused.length * 2, length)];
+            System.arraycopy(word, 0, reused, 0, length);
+            previous[previous.length - 1] = reused;
+            previousLengths[previous.length - 1] = length;
+            if (previousWords < previous.length) previousWords++;
+        }
+    }
+}
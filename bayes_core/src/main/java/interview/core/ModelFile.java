@@ -0,0 +1,530 @@
+package interview.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * <h1>Model File</h1>
+ * The ModelFile program writes the compiled model into the binary model file and
+ * maps it for scoring. The file can also hold the raw word counts the model was
+ * computed from and the smoothing of the counts, which lets the training program
+ * load the model and update it with new labeled data. A mapped model scores the
+ * log-likelihoods straight from the mapping, so they are shared through the page
+ * cache by all the servers on a host, only the labels and the index of the words
+ * are copied to the heap. Models with the same words share one index of the words
+ * while any of them is loaded. The rows of the log-likelihoods and counts are the terms in sorted
+ * order, or the buckets of hashed features, whose term count is 0. All values are
+ * little-endian:
+ * <pre>
+ * int     magic "NBCM", int version, int flags (1 = word counts present, since version 2)
+ * int     n-gram order, int hash bits, 0 when not hashed (since version 3)
+ * double  alpha, the count added to every word in every label (since version 4)
+ * int     label count L, int term count T
+ * L x     int byte length, UTF-8 bytes of the label
+ * double  L log-priors, L log-likelihoods of unseen words
+ * int     T + 1 offsets of the terms in the term block
+ * byte    term block, UTF-8 bytes of the terms in sorted order
+ * byte    padding to a multiple of 8
+ * double  R x L log-likelihoods, row-major, R = T or the number of buckets
+ * long    L total numbers of words per label, if the word counts are present
+ * int     R x L word counts, row-major, if present
+ * </pre>
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+public class ModelFile {
+
+    /**
+     * The first four bytes of the model file, "NBCM".
+     */
+    public static final int MAGIC = 0x4D43424E;
+    /**
+     * The newest version of the model file layout.
+     */
+    public static final int VERSION = 4;
+    /**
+     * The flag of a model file holding the word counts.
+     */
+    public static final int WORD_COUNTS = 1;
+
+    /**
+     * The indexes of the words of the mapped models by the SHA-256 digest of their
+     * term offsets and term block.
+     */
+    private static final ConcurrentMap<String, WeakReference<TermIndex>> TERM_INDEXES = new ConcurrentHashMap<>();
+
+    /**
+     * The word counts written into and read from the model file.
+     */
+    public interface Counts {
+
+        /**
+         * Returns the index of the label, adding the label when it is new.
+         *
+         * @param label the label
+         * @return the index of the label
+         */
+        int addLabel(String label);
+
+        /**
+         * Adds to the total number of words in the label.
+         *
+         * @param label the index of the label
+         * @param frequency the added number of words
+         */
+        void addLabelFrequency(int label, long frequency);
+
+        /**
+         * Adds to the count of the feature in the label, for the features indexed by their text.
+         *
+         * @param term the feature
+         * @param label the index of the label
+         * @param count the added count
+         */
+        void addCount(String term, int label, int count);
+
+        /**
+         * Adds to the count of the bucket in the label, for the hashed features.
+         *
+         * @param bucket the bucket
+         * @param label the index of the label
+         * @param count the added count
+         */
+        void addBucketCount(int bucket, int label, int count);
+
+        /**
+         * Returns the total number of words in the label.
+         *
+         * @param label the index of the label
+         * @return the number of words
+         */
+        long labelFrequency(int label);
+
+        /**
+         * Returns the id of the feature, or -1 if the feature was not counted.
+         *
+         * @param term the feature
+         * @return the id of the feature
+         */
+        int find(String term);
+
+        /**
+         * Returns the count of the feature or bucket with the given id in the label.
+         *
+         * @param id the id of the feature or the bucket
+         * @param label the index of the label
+         * @return the count
+         */
+        int count(int id, int label);
+    }
+
+    /**
+     * Maps the binary model file and returns the compiled model backed by it. A file
+     * that is truncated, or whose header does not fit its sections, fails with an
+     * IOException, and so does a model of more log-likelihoods than a buffer holds.
+     *
+     * @param path the path of the model file
+     * @return the compiled model
+     */
+    public static CompiledModel map(Path path) throws IOException {
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Unsupported model file " + path + " of " + channel.size() + " bytes");
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapping.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 16 || buffer.getInt() != MAGIC) {
+            throw new IOException("Unsupported model file " + path);
+        }
+        int version = buffer.getInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported model file version " + version + " of " + path);
+        }
+        require(buffer, headerLength(version), path);
+        if (version >= 2) buffer.getInt();
+        Features features = readFeatures(buffer, version, path);
+        if (version >= 4) buffer.getDouble();
+        int labelCount = buffer.getInt();
+        int termCount = buffer.getInt();
+        int likelihoodCount = likelihoodCount(features, labelCount, termCount, path);
+        String[] labels = readLabels(buffer, labelCount, path);
+        require(buffer, 2L * labelCount * 8, path);
+        double[] logPriors = new double[labelCount];
+        for (int i = 0; i < labelCount; i++) logPriors[i] = buffer.getDouble();
+        double[] logDefaultLikelihoods = new double[labelCount];
+        for (int i = 0; i < labelCount; i++) logDefaultLikelihoods[i] = buffer.getDouble();
+        int[] offsets = readTermOffsets(buffer, termCount, path);
+        byte[] termBlock = new byte[offsets[termCount]];
+        buffer.get(termBlock);
+        TermIndex terms = termIndex(offsets, termBlock);
+        skipPadding(buffer, path);
+        DoubleBuffer logLikelihoods = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        if (logLikelihoods.remaining() < likelihoodCount) {
+            throw new IOException("Truncated model file " + path);
+        }
+        return new CompiledModel(features, labels, terms, logLikelihoods, logDefaultLikelihoods, logPriors);
+    }
+
+    /**
+     * Writes the compiled model smoothed by alpha into the binary model file, together
+     * with the word counts unless they are null. The terms or buckets of the word counts and of the
+     * compiled model must be the same. The file is written next to the path and then renamed
+     * over it, so servers that have the previous file mapped keep reading it intact.
+     *
+     * @param model the written model
+     * @param wordCounts the word counts of the model or null
+     * @param alpha the count added to every word in every label
+     * @param path the path of the created file
+     */
+    public static void write(CompiledModel model, Counts wordCounts, double alpha, Path path) throws IOException {
+        Features features = model.features();
+        String[] labels = model.labels();
+        TermIndex terms = model.terms();
+        DoubleBuffer logLikelihoods = model.logLikelihoods();
+        int labelCount = labels.length;
+        int termCount = terms.size();
+
+        String[] sortedTerms = new String[termCount];
+        for (int id = 0; id < termCount; id++) {
+            sortedTerms[id] = terms.term(id);
+        }
+        Arrays.sort(sortedTerms);
+        byte[][] termBytes = new byte[termCount][];
+        for (int i = 0; i < termCount; i++) {
+            termBytes[i] = sortedTerms[i].getBytes(StandardCharsets.UTF_8);
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            writeInt(out, MAGIC);
+            writeInt(out, VERSION);
+            writeInt(out, wordCounts == null ? 0 : WORD_COUNTS);
+            writeInt(out, features.ngrams());
+            writeInt(out, features.hashBits());
+            writeDouble(out, alpha);
+            writeInt(out, labelCount);
+            writeInt(out, termCount);
+            for (String label : labels) {
+                byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+                writeInt(out, bytes.length);
+                out.write(bytes);
+            }
+            for (double logPrior : model.logPriors()) writeDouble(out, logPrior);
+            for (double logDefault : model.logDefaultLikelihoods()) writeDouble(out, logDefault);
+            int offset = 0;
+            writeInt(out, offset);
+            for (byte[] bytes : termBytes) {
+                offset += bytes.length;
+                writeInt(out, offset);
+            }
+            for (byte[] bytes : termBytes) out.write(bytes);
+            while (out.size() % 8 != 0) out.write(0);
+            int rowCount = features.hashed() ? features.buckets() : termCount;
+            for (int r = 0; r < rowCount; r++) {
+                int row = (features.hashed() ? r : terms.find(sortedTerms[r])) * labelCount;
+                for (int i = 0; i < labelCount; i++) writeDouble(out, logLikelihoods.get(row + i));
+            }
+            if (wordCounts != null) {
+                for (int i = 0; i < labelCount; i++) writeLong(out, wordCounts.labelFrequency(i));
+                for (int r = 0; r < rowCount; r++) {
+                    int id = features.hashed() ? r : wordCounts.find(sortedTerms[r]);
+                    for (int i = 0; i < labelCount; i++) writeInt(out, wordCounts.count(id, i));
+                }
+            }
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the word counts of the binary model file, of version 2 or newer, into
+     * the counts created for the features of the file.
+     *
+     * @param path the path of the model file
+     * @param counts the creator of the empty counts of the features
+     * @param <T> the type of the counts
+     * @return the word counts
+     */
+    public static <T extends Counts> T readCounts(Path path, Function<Features, T> counts) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < 20 || buffer.getInt() != MAGIC) {
+            throw new IOException("Unsupported model file " + path);
+        }
+        int version = buffer.getInt();
+        if (version < 2 || version > VERSION) {
+            throw new IOException("Unsupported model file version " + version + " of " + path);
+        }
+        require(buffer, headerLength(version), path);
+        if ((buffer.getInt() & WORD_COUNTS) == 0) {
+            throw new IOException("Model file " + path + " holds no word counts");
+        }
+        Features features = readFeatures(buffer, version, path);
+        if (version >= 4) buffer.getDouble();
+        int labelCount = buffer.getInt();
+        int termCount = buffer.getInt();
+        int likelihoodCount = likelihoodCount(features, labelCount, termCount, path);
+        int rowCount = features.hashed() ? features.buckets() : termCount;
+        String[] labels = readLabels(buffer, labelCount, path);
+        T wordCounts = counts.apply(features);
+        for (String label : labels) wordCounts.addLabel(label);
+        require(buffer, 2L * labelCount * 8, path);
+        buffer.position(buffer.position() + 2 * labelCount * 8);
+        int[] offsets = readTermOffsets(buffer, termCount, path);
+        byte[] termBlock = new byte[offsets[termCount]];
+        buffer.get(termBlock);
+        skipPadding(buffer, path);
+        // the counts follow the log-likelihoods, the section sizes are longs as they may exceed an int
+        require(buffer, 8L * likelihoodCount + 8L * labelCount + 4L * likelihoodCount, path);
+        buffer.position(buffer.position() + 8 * likelihoodCount);
+
+        for (int i = 0; i < labelCount; i++) wordCounts.addLabelFrequency(i, buffer.getLong());
+        if (features.hashed()) {
+            for (int bucket = 0; bucket < rowCount; bucket++) {
+                for (int i = 0; i < labelCount; i++) wordCounts.addBucketCount(bucket, i, buffer.getInt());
+            }
+            return wordCounts;
+        }
+        for (int id = 0; id < termCount; id++) {
+            String term = new String(termBlock, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+            for (int i = 0; i < labelCount; i++) wordCounts.addCount(term, i, buffer.getInt());
+        }
+        return wordCounts;
+    }
+
+    /**
+     * Reads the alpha of the binary model file, 1 for the files older than version 4
+     * smoothed by adding one.
+     *
+     * @param path the path of the model file
+     * @return the count added to every word in every label
+     */
+    public static double readAlpha(Path path) throws IOException {
+        byte[] header = new byte[28];
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            in.readFully(header);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Unsupported model file " + path);
+        }
+        int version = buffer.getInt();
+        return version >= 4 ? buffer.getDouble(20) : 1;
+    }
+
+    /**
+     * Returns the number of bytes of the header following the magic and the version.
+     *
+     * @param version the version of the model file
+     * @return the number of bytes of the flags, the features, the alpha and the counts
+     */
+    private static int headerLength(int version){
+        return (version >= 2 ? 4 : 0) + (version >= 3 ? 8 : 0) + (version >= 4 ? 8 : 0) + 8;
+    }
+
+    /**
+     * Reads the features of the model file, the unigrams before version 3.
+     *
+     * @param buffer the buffer at the features
+     * @param version the version of the model file
+     * @param path the path of the model file
+     * @return the features
+     */
+    private static Features readFeatures(ByteBuffer buffer, int version, Path path) throws IOException {
+        if (version < 3) return Features.UNIGRAMS;
+        try {
+            return new Features(buffer.getInt(), buffer.getInt());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported features of model file " + path, e);
+        }
+    }
+
+    /**
+     * Returns the number of log-likelihoods of the model file, failing when the
+     * counts of the header are negative or there are more log-likelihoods than a
+     * buffer holds.
+     *
+     * @param features the features of the model file
+     * @param labelCount the label count of the header
+     * @param termCount the term count of the header
+     * @param path the path of the model file
+     * @return the number of log-likelihoods, and of the word counts when present
+     */
+    private static int likelihoodCount(Features features, int labelCount, int termCount, Path path) throws IOException {
+        if (labelCount < 0 || termCount < 0) {
+            throw new IOException("Invalid label count " + labelCount + " or term count " + termCount + " of " + path);
+        }
+        try {
+            return CompiledModel.likelihoodCount(features.hashed() ? features.buckets() : termCount, labelCount);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported model file " + path, e);
+        }
+    }
+
+    /**
+     * Reads the labels of the model file.
+     *
+     * @param buffer the buffer at the labels
+     * @param labelCount the number of labels
+     * @param path the path of the model file
+     * @return the labels
+     */
+    private static String[] readLabels(ByteBuffer buffer, int labelCount, Path path) throws IOException {
+        String[] labels = new String[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            require(buffer, 4, path);
+            int length = buffer.getInt();
+            require(buffer, length, path);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            labels[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return labels;
+    }
+
+    /**
+     * Reads the offsets of the terms in the term block, failing unless they rise
+     * from 0 and the term block follows them in full.
+     *
+     * @param buffer the buffer at the offsets
+     * @param termCount the number of terms
+     * @param path the path of the model file
+     * @return the termCount + 1 offsets
+     */
+    private static int[] readTermOffsets(ByteBuffer buffer, int termCount, Path path) throws IOException {
+        require(buffer, 4L * (termCount + 1), path);
+        int[] offsets = new int[termCount + 1];
+        for (int i = 0; i <= termCount; i++) {
+            offsets[i] = buffer.getInt();
+            if (offsets[i] < (i == 0 ? 0 : offsets[i - 1]) || (i == 0 && offsets[i] != 0)) {
+                throw new IOException("Invalid term offsets of model file " + path);
+            }
+        }
+        require(buffer, offsets[termCount], path);
+        return offsets;
+    }
+
+    /**
+     * Skips the padding of the term block to a multiple of 8 bytes.
+     *
+     * @param buffer the buffer after the term block
+     * @param path the path of the model file
+     */
+    private static void skipPadding(ByteBuffer buffer, Path path) throws IOException {
+        int padding = -buffer.position() & 7;
+        require(buffer, padding, path);
+        buffer.position(buffer.position() + padding);
+    }
+
+    /**
+     * Fails unless the given number of bytes are left in the buffer, so a truncated
+     * model file fails with an IOException rather than a BufferUnderflowException.
+     *
+     * @param buffer the buffer of the model file
+     * @param bytes the number of bytes read next
+     * @param path the path of the model file
+     */
+    private static void require(ByteBuffer buffer, long bytes, Path path) throws IOException {
+        if (bytes < 0 || buffer.remaining() < bytes) {
+            throw new IOException("Truncated model file " + path);
+        }
+    }
+
+    /**
+     * Returns the index of the terms of the term block, the same index for the same
+     * terms while the index is in use.
+     *
+     * @param offsets the offsets of the terms in the term block
+     * @param termBlock the UTF-8 bytes of the terms
+     * @return the index of the terms
+     */
+    private static TermIndex termIndex(int[] offsets, byte[] termBlock){
+        String digest = digest(offsets, termBlock);
+        WeakReference<TermIndex> shared = TERM_INDEXES.get(digest);
+        TermIndex terms = shared == null ? null : shared.get();
+        if (terms != null) return terms;
+        int termCount = offsets.length - 1;
+        terms = new TermIndex(termCount);
+        for (int i = 0; i < termCount; i++) {
+            terms.add(new String(termBlock, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8));
+        }
+        TERM_INDEXES.values().removeIf(reference -> reference.get() == null);
+        TERM_INDEXES.put(digest, new WeakReference<>(terms));
+        return terms;
+    }
+
+    /**
+     * Returns the hexadecimal SHA-256 digest of the term offsets and the term block.
+     *
+     * @param offsets the offsets of the terms in the term block
+     * @param termBlock the UTF-8 bytes of the terms
+     * @return the digest
+     */
+    private static String digest(int[] offsets, byte[] termBlock){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer offsetBytes = ByteBuffer.allocate(offsets.length * 4);
+            offsetBytes.asIntBuffer().put(offsets);
+            digest.update(offsetBytes);
+            digest.update(termBlock);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes a little-endian int.
+     *
+     * @param out the output
+     * @param value the written value
+     */
+    private static void writeInt(DataOutputStream out, int value) throws IOException {
+        out.writeInt(Integer.reverseBytes(value));
+    }
+
+    /**
+     * Writes a little-endian long.
+     *
+     * @param out the output
+     * @param value the written value
+     */
+    private static void writeLong(DataOutputStream out, long value) throws IOException {
+        out.writeLong(Long.reverseBytes(value));
+    }
+
+    /**
+     * Writes a little-endian double.
+     *
+     * @param out the output
+     * @param value the written value
+     */
+    private static void writeDouble(DataOutputStream out, double value) throws IOException {
+        out.writeLong(Long.reverseBytes(Double.doubleToRawLongBits(value)));
+    }
+}
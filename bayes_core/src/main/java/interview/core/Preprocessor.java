@@ -0,0 +1,130 @@
+package interview.core;
+
+import java.util.ArrayList;
+
+/**
+ * <h1>Preprocessor</h1>
+ * The Preprocessor program contains the methods for text preprocessing for
+ * the classifier. It splits the sentences into words and deletes any white-space
+ * and punctuation characters.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+public class Preprocessor {
+
+    /**
+     * Receives the preprocessed words of a sentence one at a time.
+     */
+    public interface WordVisitor {
+
+        /**
+         * Called for every preprocessed word in the order of the sentence. The word
+         * occupies the first length characters of the buffer, the buffer is reused
+         * for the following words.
+         *
+         * @param word the buffer holding the word
+         * @param length the length of the word
+         */
+        void visit(char[] word, int length);
+
+        /**
+         * Called for every n-gram of the features after the word it ends, see
+         * Features.visitor. The n-gram is visited as a word unless overridden.
+         *
+         * @param ngram the buffer holding the words of the n-gram joined by spaces
+         * @param length the length of the n-gram
+         */
+        default void visitNgram(char[] ngram, int length) {
+            visit(ngram, length);
+        }
+    }
+
+    /**
+     * Returns arraylist of words cleared of white-spaces and
+     * punctuation in the given arraylist of sentences.
+     *
+     * @param sentences the sentences to preprocess
+     * @return preprocessed words
+     */
+    public static ArrayList<String[]> preprocess(ArrayList<String> sentences){
+        ArrayList<String[]> preprocessedSentences = new ArrayList<>();
+        for (String s: sentences) {
+            preprocessedSentences.add(preprocess(s));
+        }
+        return preprocessedSentences;
+    }
+
+    /**
+     * Returns array of Strings of words cleared of white-spaces and
+     * punctuation in the given sentence.
+     *
+     * @param sentence the sentence to preprocess
+     * @return preprocessed words
+     */
+    public static String[] preprocess(String sentence){
+        ArrayList<String> words = new ArrayList<>();
+        preprocess(sentence, (word, length) -> words.add(new String(word, 0, length)));
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * Passes the words of the given sentence cleared of white-spaces and punctuation
+     * to the visitor in a single pass over the sentence.
+     * The words are split on semicolons and runs of white-spaces, only the letters
+     * a-z are kept and lower-cased. Words left empty by the normalization are kept,
+     * empty words at the end of the sentence are dropped, same as String.split does.
+     *
+     * @param sentence the sentence to preprocess
+     * @param visitor the visitor receiving the preprocessed words
+     */
+    public static void preprocess(String sentence, WordVisitor visitor){
+        int sentenceLength = sentence.length();
+        char[] word = new char[sentenceLength];
+        int wordLength = 0;
+        int rawLength = 0;
+        int pendingEmptyWords = 0;
+        boolean split = false;
+        int i = 0;
+        while (i < sentenceLength) {
+            char c = sentence.charAt(i++);
+            if (c == ';' || isWhitespace(c)) {
+                if (c != ';') {
+                    while (i < sentenceLength && isWhitespace(sentence.charAt(i))) i++;
+                }
+                split = true;
+                if (rawLength == 0) {
+                    pendingEmptyWords++;
+                } else {
+                    for (; pendingEmptyWords > 0; pendingEmptyWords--) visitor.visit(word, 0);
+                    visitor.visit(word, wordLength);
+                }
+                wordLength = 0;
+                rawLength = 0;
+            } else {
+                rawLength++;
+                if (c >= 'a' && c <= 'z') {
+                    word[wordLength++] = c;
+                } else if (c >= 'A' && c <= 'Z') {
+                    word[wordLength++] = (char) (c + ('a' - 'A'));
+                }
+            }
+        }
+        if (!split || rawLength > 0) {
+            for (; pendingEmptyWords > 0; pendingEmptyWords--) visitor.visit(word, 0);
+            visitor.visit(word, wordLength);
+        }
+    }
+
+    /**
+     * Returns whether the character is a white-space in the sense of the regular
+     * expression class \s.
+     *
+     * @param c the tested character
+     * @return true for a white-space character
+     */
+    private static boolean isWhitespace(char c){
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
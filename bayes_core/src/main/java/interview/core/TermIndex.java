@@ -0,0 +1,214 @@
+package interview.core;
+
+import java.util.Arrays;
+
+/**
+ * <h1>Term Index</h1>
+ * The TermIndex program maps words to dense integer ids 0, 1, 2, ... in the order
+ * of their insertion. It is an open-addressing hash table over the characters of
+ * the words, so the words can be looked up straight from the Preprocessor buffers
+ * without creating Strings.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+public class TermIndex {
+
+    /**
+     * The characters of all the terms, term id occupies chars[offsets[id]] to chars[offsets[id + 1]].
+     */
+    private char[] chars;
+    /**
+     * The start offsets of the terms in chars, one more than the number of terms.
+     */
+    private int[] offsets;
+    /**
+     * The hashes of the terms by term id.
+     */
+    private int[] hashes;
+    /**
+     * The hash table of term ids increased by one, zero marks an empty slot.
+     */
+    private int[] slots;
+    /**
+     * Number of terms in the index.
+     */
+    private int size;
+
+    /**
+     * Class constructor.
+     *
+     * @param expectedSize the expected number of terms
+     */
+    public TermIndex(int expectedSize){
+        int capacity = Math.max(expectedSize, 16);
+        this.chars = new char[capacity * 8];
+        this.offsets = new int[capacity + 1];
+        this.hashes = new int[capacity];
+        this.slots = new int[tableSize(capacity)];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of terms in the index.
+     *
+     * @return the number of terms
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Returns the id of the term, or -1 if the term is not in the index.
+     *
+     * @param term the buffer holding the term
+     * @param length the length of the term
+     * @return the id of the term
+     */
+    public int find(char[] term, int length){
+        int hash = hash(term, length);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) return -1;
+            if (hashes[id] == hash && termEquals(id, term, length)) return id;
+        }
+    }
+
+    /**
+     * Returns the id of the term, or -1 if the term is not in the index.
+     *
+     * @param term the term
+     * @return the id of the term
+     */
+    public int find(String term){
+        return find(term.toCharArray(), term.length());
+    }
+
+    /**
+     * Returns the id of the term, adding the term with the next free id when it is
+     * not in the index yet.
+     *
+     * @param term the buffer holding the term
+     * @param length the length of the term
+     * @return the id of the term
+     */
+    public int add(char[] term, int length){
+        int hash = hash(term, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && termEquals(id, term, length)) return id;
+        }
+        int id = size++;
+        if (size == hashes.length) grow();
+        int start = offsets[id];
+        if (start + length > chars.length) chars = Arrays.copyOf(chars, Math.max(chars.length * 2, start + length));
+        System.arraycopy(term, 0, chars, start, length);
+        offsets[id + 1] = start + length;
+        hashes[id] = hash;
+        if (slots.length != tableSize(hashes.length)) {
+            rehash();
+        } else {
+            slots[slot] = id + 1;
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the term, adding the term with the next free id when it is
+     * not in the index yet.
+     *
+     * @param term the term
+     * @return the id of the term
+     */
+    public int add(String term){
+        return add(term.toCharArray(), term.length());
+    }
+
+    /**
+     * Returns the estimated number of bytes of the arrays of the index.
+     *
+     * @return the number of bytes
+     */
+    public long memoryBytes(){
+        return 2L * chars.length + 4L * (offsets.length + hashes.length + slots.length);
+    }
+
+    /**
+     * Returns the term with the given id.
+     *
+     * @param id the id of the term
+     * @return the term
+     */
+    public String term(int id){
+        return new String(chars, offsets[id], offsets[id + 1] - offsets[id]);
+    }
+
+    /**
+     * Returns whether the term with the given id equals the term in the buffer.
+     *
+     * @param id the id of the term
+     * @param term the buffer holding the term
+     * @param length the length of the term
+     * @return true for equal terms
+     */
+    private boolean termEquals(int id, char[] term, int length){
+        int start = offsets[id];
+        if (offsets[id + 1] - start != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (chars[start + i] != term[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Enlarges the arrays indexed by the term id.
+     */
+    private void grow(){
+        int capacity = hashes.length * 2;
+        offsets = Arrays.copyOf(offsets, capacity + 1);
+        hashes = Arrays.copyOf(hashes, capacity);
+    }
+
+    /**
+     * Rebuilds the hash table for the current capacity.
+     */
+    private void rehash(){
+        slots = new int[tableSize(hashes.length)];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) slot = (slot + 1) & mask;
+            slots[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Returns the hash table size keeping the table at most half full.
+     *
+     * @param capacity the number of terms
+     * @return the power of two table size
+     */
+    private static int tableSize(int capacity){
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    /**
+     * Returns the hash of the term.
+     *
+     * @param term the buffer holding the term
+     * @param length the length of the term
+     * @return the hash
+     */
+    private static int hash(char[] term, int length){
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + term[i];
+        }
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
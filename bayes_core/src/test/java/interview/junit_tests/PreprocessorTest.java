@@ -0,0 +1,41 @@
+package interview.junit_tests;
+
+import interview.core.Features;
+import interview.core.Preprocessor;
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class PreprocessorTest {
+    private Preprocessor preprocessor = new Preprocessor();
+
+    @Test
+    public void preprocessorSplits() {
+        assertArrayEquals(new String[]{"positive", "", "sushi"}, preprocessor.preprocess("Posi+tive; sU+s56+§.!-hi"));
+    }
+
+    @Test
+    public void preprocessorDropsTrailingEmptyWords() {
+        assertArrayEquals(new String[]{"", "good", "", ""}, preprocessor.preprocess(";good;;!! ;\t "));
+        assertArrayEquals(new String[]{}, preprocessor.preprocess(" ;"));
+        assertArrayEquals(new String[]{""}, preprocessor.preprocess(""));
+    }
+
+    @Test
+    public void preprocessorVisitsWords() {
+        ArrayList<String> words = new ArrayList<>();
+        preprocessor.preprocess("Good  shop;", (word, length) -> words.add(new String(word, 0, length)));
+        assertArrayEquals(new String[]{"good", "shop"}, words.toArray());
+    }
+
+    @Test
+    public void featuresVisitNgramsOfNonEmptyWords() {
+        ArrayList<String> features = new ArrayList<>();
+        preprocessor.preprocess("Not very 42 good", new Features(3, 0).visitor(
+                (word, length) -> features.add(new String(word, 0, length))));
+        assertArrayEquals(new String[]{"not", "very", "not very", "", "good", "very good", "not very good"},
+                features.toArray());
+    }
+}
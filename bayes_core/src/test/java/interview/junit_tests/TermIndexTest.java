@@ -0,0 +1,29 @@
+package interview.junit_tests;
+
+import interview.core.TermIndex;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TermIndexTest {
+    private TermIndex index = new TermIndex(0);
+
+    @Test
+    public void indexAssignsDenseIds() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, index.add("word" + i));
+        }
+        assertEquals(1000, index.size());
+        assertEquals(42, index.add("word42"));
+        assertEquals(999, index.find("word999"));
+        assertEquals("word7", index.term(7));
+    }
+
+    @Test
+    public void indexMissesUnknownWords() {
+        index.add("good");
+        assertEquals(-1, index.find("goo"));
+        assertEquals(-1, index.find(""));
+        assertEquals(0, index.find("good".toCharArray(), 4));
+    }
+}
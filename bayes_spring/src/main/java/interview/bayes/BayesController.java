@@ -1,8 +1,13 @@
 package interview.bayes;
 
+import interview.core.Explanation;
+import org.apache.catalina.Globals;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationPreparedEvent;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
@@ -10,13 +15,24 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * <h1>Bayes Controller</h1>
@@ -29,20 +45,86 @@ import java.nio.file.Paths;
 @RestController
 public class BayesController {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(BayesController.class);
+
+    /**
+     * The largest number of words returned in an explained response.
+     */
+    private static final int MAX_EXPLAINED_WORDS = 100;
+
+    /**
+     * The holder of the NaiveBayesClassifier instance for the server.
+     */
+    final ModelHolder modelHolder;
+
+    /**
+     * The metrics of the classification requests.
+     */
+    final ClassifierMetrics metrics;
+
+    /**
+     * The cache of the labels of repeated texts.
+     */
+    final LabelCache labelCache;
+
+    /**
+     * The registry of the named models.
+     */
+    final ModelRegistry modelRegistry;
+
+    /**
+     * The batcher of the concurrent classifications.
+     */
+    final MicroBatcher microBatcher;
+
+    /**
+     * The encoded responses of POST /api by label.
+     */
+    private final ConcurrentMap<String, byte[]> labelResponses = new ConcurrentHashMap<>();
+
     /**
-     * The NaiveBayesClassifier instance for the server.
+     * The smallest number of texts in a batch request that gets classified in parallel.
      */
-    NaiveBayesClassifier model;
+    @Value("${bayes.batch.parallel-threshold:256}")
+    int batchParallelThreshold;
 
     /**
-     * Initializes the model attribute and uses the json file to load its
-     * attributes.
+     * Whether POST /admin/reload is served, off as it is not authenticated.
+     */
+    @Value("${bayes.admin.reload.enabled:false}")
+    boolean reloadEnabled;
+
+    /**
+     * Class constructor.
+     *
+     * @param modelHolder the holder of the served classifier
+     * @param metrics the metrics of the classification requests
+     * @param labelCache the cache of the labels of repeated texts
+     * @param modelRegistry the registry of the named models
+     * @param microBatcher the batcher of the concurrent classifications
+     */
+    public BayesController(ModelHolder modelHolder, ClassifierMetrics metrics, LabelCache labelCache,
+                           ModelRegistry modelRegistry, MicroBatcher microBatcher) {
+        this.modelHolder = modelHolder;
+        this.metrics = metrics;
+        this.labelCache = labelCache;
+        this.modelRegistry = modelRegistry;
+        this.microBatcher = microBatcher;
+    }
+
+    /**
+     * Loads the model from the binary model file, or the json file when there is
+     * no binary one, and starts watching the file for new models. The requests get
+     * 503 until the model is loaded, and the readiness reports out of service until
+     * it is also warmed up.
      */
     @EventListener(ApplicationReadyEvent.class)
     public void runAfterStartup(){
-        this.model = new NaiveBayesClassifier();
-        Path path = Paths.get("./params.json");
-        model.loadParams(path);
+        try {
+            modelHolder.start();
+        } catch (IOException e) {
+            LOGGER.error("Watching the model file failed, it is not reloaded when it changes", e);
+        }
     }
 
     /**
@@ -54,19 +136,294 @@ public class BayesController {
     }
 
     /**
-     * Server response to POST HTTP request.
+     * Server response to POST HTTP request. Only the "text" attribute is read from
+     * the bytes of the body, and the response is written from the encoded response
+     * of the label. With the request parameter explain=k the response also holds the
+     * posterior probabilities of the labels and the k words that contributed the most
+     * to the label. With the micro-batcher enabled the labels are determined in its
+     * batches, without the label cache. The requests of the warm-up skip the label
+     * cache and the metrics.
      *
-     * @param requestBody body of the POST request
+     * @param request the POST request
+     * @param response the response
      */
     @PostMapping("/api")
-    public String returnLabel(@RequestBody String requestBody) {
+    public void returnLabel(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        returnLabel(null, request, response);
+    }
+
+    /**
+     * Server response to POST HTTP request classifying the text by the named model
+     * of the model registry, otherwise the same as POST /api. The labels of these
+     * requests are not cached.
+     *
+     * @param model the name of the model
+     * @param request the POST request
+     * @param response the response
+     */
+    @PostMapping("/api/{model}")
+    public void returnModelLabel(@PathVariable("model") String model, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        NaiveBayesClassifier classifier = modelRegistry.get(model);
+        if (classifier == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown model " + model);
+        returnLabel(classifier, request, response);
+    }
+
+    /**
+     * Classifies the text of the POST request by the classifier and writes the response.
+     *
+     * @param model the classifier, null for the served model with the label cache
+     * @param request the POST request
+     * @param response the response
+     */
+    private void returnLabel(NaiveBayesClassifier model, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+
+        long start = System.nanoTime();
+        NaiveBayesClassifier classifier = model == null ? servedModel() : model;
+        // the requests of the warm-up are not counted in the metrics, and they skip the label cache so the
+        // scoring is compiled on every request rather than answered from the cache after the first sentences
+        boolean warmUp = request.getHeader(ModelWarmUp.HEADER) != null;
+        ClassifierMetrics listener = warmUp ? null : metrics;
+        String textToClassify = JsonText.readString(request.getInputStream().readAllBytes(), "text");
+        String explain = explainParameter(request);
+        long parsed = System.nanoTime();
+        byte[] responseBody;
+        long classified;
+        if (explain == null) {
+            String label;
+            if (microBatcher.isEnabled() && model == null) {
+                label = microBatcher.classify(classifier, textToClassify, listener);
+            } else if (model != null || warmUp) {
+                label = classifier.classify(textToClassify, listener);
+            } else {
+                label = labelCache.classify(classifier, textToClassify, listener);
+            }
+            classified = System.nanoTime();
+            responseBody = labelResponse(label);
+        } else {
+            Explanation explanation = classifier.explain(textToClassify, explainedWords(explain), listener);
+            classified = System.nanoTime();
+            responseBody = explanationResponse(explanation);
+        }
+
+        response.setContentType("application/json");
+        response.setContentLength(responseBody.length);
+        response.getOutputStream().write(responseBody);
+        if (listener != null) listener.api.record(start, parsed, classified, System.nanoTime());
+
+    }
+
+    /**
+     * Server response to POST HTTP request with a batch of texts. The body is a json
+     * array of texts or of objects with the "text" and optional "id" attributes,
+     * the response holds the labels in the same order.
+     *
+     * @param requestBody body of the POST request
+     */
+    @PostMapping("/api/batch")
+    public String returnLabels(@RequestBody String requestBody) {
+
+        long start = System.nanoTime();
+        NaiveBayesClassifier model = servedModel();
+        JSONArray jsonArray = new JSONArray(requestBody);
+        String[] textsToClassify = new String[jsonArray.length()];
+        Object[] ids = new Object[jsonArray.length()];
+        for (int i = 0; i < jsonArray.length(); i++) {
+            JSONObject jsonObj = jsonArray.optJSONObject(i);
+            if (jsonObj == null) {
+                textsToClassify[i] = jsonArray.getString(i);
+            } else {
+                textsToClassify[i] = jsonObj.getString("text");
+                ids[i] = jsonObj.opt("id");
+            }
+        }
+        long parsed = System.nanoTime();
+        String[] labels = model.classify(textsToClassify, batchParallelThreshold, metrics);
+        long classified = System.nanoTime();
+
+        StringBuilder response = new StringBuilder("[");
+        for (int i = 0; i < labels.length; i++) {
+            if (i > 0) response.append(",");
+            response.append("\n { ");
+            if (ids[i] != null) response.append("\"id\": ").append(JSONObject.valueToString(ids[i])).append(", ");
+            response.append("\"label\": ").append(JSONObject.quote(labels[i])).append(" }");
+        }
+        String responseBody = response.append("\n]").toString();
+        metrics.batch.record(start, parsed, classified, System.nanoTime());
+        return responseBody;
+
+    }
+
+    /**
+     * Server response to POST HTTP request with a stream of texts. Every line of
+     * the body is a json object with the "text" and optional "id" attributes or
+     * a plain text, a json line with the label is written back for every line as
+     * soon as it is classified. Neither the body nor the response are buffered
+     * as a whole. A malformed line gets a json line with the "error" attribute, and
+     * its id when it has one, and the following lines are still classified. The
+     * lines are classified without the label cache, so a long stream does not evict
+     * the texts repeated on /api.
+     *
+     * @param request the POST request
+     * @param response the streamed response
+     */
+    @PostMapping("/api/stream")
+    public void streamLabels(HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        NaiveBayesClassifier model = servedModel();
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+        Writer writer = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) continue;
+            long start = System.nanoTime();
+            String textToClassify = line;
+            Object id = null;
+            String error = null;
+            if (line.stripLeading().startsWith("{")) {
+                try {
+                    JSONObject jsonObj = new JSONObject(line);
+                    id = jsonObj.opt("id");
+                    textToClassify = jsonObj.getString("text");
+                } catch (JSONException e) {
+                    error = e.getMessage();
+                }
+            }
+            long parsed = System.nanoTime();
+            String label = error == null ? model.classify(textToClassify, metrics) : null;
+            long classified = System.nanoTime();
 
-        JSONObject jsonObj = new JSONObject(requestBody);
-        String textToClassify = jsonObj.getString("text");
-        String label = model.classify(textToClassify);
+            writer.write("{");
+            if (id != null) writer.append("\"id\": ").append(JSONObject.valueToString(id)).append(", ");
+            if (error == null) {
+                writer.append("\"label\": ").append(JSONObject.quote(label)).append("}\n");
+            } else {
+                writer.append("\"error\": ").append(JSONObject.quote(error)).append("}\n");
+            }
+            // flush whenever the next line is not received yet, so the labels keep flowing
+            if (!reader.ready()) writer.flush();
+            metrics.stream.record(start, parsed, classified, System.nanoTime());
+        }
+        writer.flush();
 
-        return "{ \n \"label\": \"" + label + "\" \n }";
+    }
+
+    /**
+     * Server response to POST HTTP request asking to reload the model file now,
+     * without waiting for the file watcher. The models of the model registry have
+     * files of their own and stay loaded. It is served on the API port without any
+     * authentication, so it answers 404 unless bayes.admin.reload.enabled is true.
+     */
+    @PostMapping("/admin/reload")
+    public ResponseEntity<String> reloadModel() {
+
+        if (!reloadEnabled) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Reloading is disabled");
+        try {
+            modelHolder.reload();
+            return ResponseEntity.ok("{ \n \"reloaded\": true \n }");
+        } catch (IOException | RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("{ \n \"reloaded\": false, \"error\": " + JSONObject.quote(e.getMessage()) + " \n }");
+        }
+
+    }
+
+    /**
+     * Answers 400 Bad Request to a request body that is not the expected json, as
+     * the LiteServer does.
+     *
+     * @param e the failure of reading the body
+     * @param response the response
+     */
+    @ExceptionHandler(JSONException.class)
+    public void invalidJson(JSONException e, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
 
+    /**
+     * Returns the served classifier, failing the request with 503 Service Unavailable
+     * until the first model is loaded.
+     *
+     * @return the served classifier
+     */
+    private NaiveBayesClassifier servedModel() {
+        NaiveBayesClassifier model = modelHolder.get();
+        if (model == null) throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "No model loaded yet");
+        return model;
+    }
+
+    /**
+     * Returns the request parameter explain, failing the request with 400 Bad Request
+     * when the query has a malformed % escape. Tomcat drops the parameters it cannot
+     * decode and only marks the request, so the explain would silently be ignored.
+     *
+     * @param request the POST request
+     * @return the value of the parameter, null when it is missing
+     */
+    private static String explainParameter(HttpServletRequest request) {
+        String explain = request.getParameter("explain");
+        if (request.getAttribute(Globals.PARAMETER_PARSE_FAILED_ATTR) != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid query " + request.getQueryString());
+        }
+        return explain;
+    }
+
+    /**
+     * Returns the number of explained words of the request parameter explain, at most
+     * MAX_EXPLAINED_WORDS, failing the request with 400 Bad Request when it is not
+     * a number.
+     *
+     * @param explain the value of the request parameter
+     * @return the number of explained words
+     */
+    private static int explainedWords(String explain) {
+        try {
+            return Math.min(Math.max(Integer.parseInt(explain), 0), MAX_EXPLAINED_WORDS);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid explain " + explain, e);
+        }
+    }
+
+    /**
+     * Returns the UTF-8 encoded response of POST /api with the label, encoded once
+     * per label.
+     *
+     * @param label the determined label
+     * @return the encoded response
+     */
+    private byte[] labelResponse(String label) {
+        byte[] responseBody = labelResponses.get(label);
+        if (responseBody == null) {
+            responseBody = labelResponses.computeIfAbsent(label,
+                    l -> ("{ \n \"label\": " + JSONObject.quote(l) + " \n }").getBytes(StandardCharsets.UTF_8));
+        }
+        return responseBody;
+    }
+
+    /**
+     * Returns the response body of the explanation, a json object with the "label",
+     * "posteriors" and "words" attributes.
+     *
+     * @param explanation the explained classification
+     * @return the UTF-8 bytes of the response body
+     */
+    static byte[] explanationResponse(Explanation explanation) {
+        String[] labels = explanation.labels();
+        String[] words = explanation.words();
+        StringBuilder json = new StringBuilder("{ \n \"label\": ").append(JSONObject.quote(explanation.label())).append(", \n \"posteriors\": {");
+        for (int i = 0; i < labels.length; i++) {
+            if (i > 0) json.append(", ");
+            json.append(JSONObject.quote(labels[i])).append(": ").append(explanation.posteriors()[i]);
+        }
+        json.append("}, \n \"words\": [");
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) json.append(", ");
+            json.append("{\"word\": ").append(JSONObject.quote(words[i])).append(", \"score\": ").append(explanation.scores()[i]).append('}');
+        }
+        return json.append("] \n }").toString().getBytes(StandardCharsets.UTF_8);
     }
 
-}
\ No newline at end of file
+}
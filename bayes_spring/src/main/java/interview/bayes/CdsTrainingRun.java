@@ -0,0 +1,129 @@
+package interview.bayes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h1>Cds Training Run</h1>
+ * The CdsTrainingRun program turns a server start into the training run of a class
+ * data sharing archive when bayes.cds.training-run is true. Once the server is ready
+ * and the model is loaded it sends itself the requests of a regular start, GET /,
+ * POST /api and an explained POST /api, and exits. A JVM started with
+ * -XX:ArchiveClassesAtExit then archives every class loaded up to the first
+ * answered requests, which the servers started with -XX:SharedArchiveFile map
+ * instead of loading and verifying them again. The LiteServer runs the same
+ * requests for its own archive.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@Component
+@ConditionalOnProperty(name = "bayes.cds.training-run", havingValue = "true")
+public class CdsTrainingRun {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CdsTrainingRun.class);
+
+    /**
+     * The longest wait for the model to be loaded.
+     */
+    private static final long MODEL_TIMEOUT_MILLIS = 60_000;
+
+    /**
+     * The holder of the served classifier.
+     */
+    private final ModelHolder modelHolder;
+
+    /**
+     * Class constructor.
+     *
+     * @param modelHolder the holder of the served classifier
+     */
+    public CdsTrainingRun(ModelHolder modelHolder) {
+        this.modelHolder = modelHolder;
+    }
+
+    /**
+     * Starts a thread sending the requests to the started server once the model is
+     * loaded and exiting. The model is loaded by another listener of the same event,
+     * so the requests are not sent from the listener itself.
+     *
+     * @param event the event of the ready application
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void exerciseAndExit(ApplicationReadyEvent event) {
+        ApplicationContext context = event.getApplicationContext();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        new Thread(() -> {
+            int exitCode = 1;
+            try {
+                long deadline = System.currentTimeMillis() + MODEL_TIMEOUT_MILLIS;
+                while (modelHolder.get() == null) {
+                    if (System.currentTimeMillis() > deadline) throw new IOException("No model loaded for the training run");
+                    Thread.sleep(10);
+                }
+                exercise(port);
+                LOGGER.info("Training run finished, exiting");
+                exitCode = SpringApplication.exit(context);
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                LOGGER.error("Training run failed", e);
+            }
+            System.exit(exitCode);
+        }, "cds-training-run").start();
+    }
+
+    /**
+     * Sends GET /, POST /api and POST /api?explain=3 to the server on the local port
+     * and fails unless all of them succeed.
+     *
+     * @param port the port of the server
+     */
+    static void exercise(int port) throws IOException {
+        String api = "http://localhost:" + port + "/api";
+        request("http://localhost:" + port + "/", null);
+        request(api, "{\"text\": \"Good shop, nice staff.\"}");
+        request(api + "?explain=3", "{\"text\": \"Long queues at the checkout.\"}");
+    }
+
+    /**
+     * Sends the request, a POST of the json body or a GET without a body, and reads
+     * the response.
+     *
+     * @param url the url
+     * @param body the json body, null for a GET
+     */
+    private static void request(String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            if (body != null) {
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setDoOutput(true);
+                try (OutputStream output = connection.getOutputStream()) {
+                    output.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            if (connection.getResponseCode() != 200) {
+                throw new IOException("Training request " + url + " failed with " + connection.getResponseCode());
+            }
+            try (InputStream input = connection.getInputStream()) {
+                input.readAllBytes();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
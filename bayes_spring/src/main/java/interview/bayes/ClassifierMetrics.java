@@ -0,0 +1,173 @@
+package interview.bayes;
+
+import interview.core.ClassificationListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Classifier Metrics</h1>
+ * The ClassifierMetrics program records the metrics of the classification requests
+ * into the Micrometer registry, exported by the actuator in the Prometheus format:
+ * latency histograms of the request stages, the numbers of requests, of classified
+ * words and of words missing in the model, and the numbers of the determined labels.
+ * The n-grams of the features are not counted as words, and the words of a model
+ * with hashed features are never counted missing.
+ * All meters are created up front, so recording allocates nothing per request.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@Component
+public class ClassifierMetrics implements ClassificationListener {
+
+    /**
+     * The metrics of POST /api.
+     */
+    final EndpointMetrics api;
+    /**
+     * The metrics of POST /api/batch.
+     */
+    final EndpointMetrics batch;
+    /**
+     * The metrics of POST /api/stream, recorded per line.
+     */
+    final EndpointMetrics stream;
+
+    /**
+     * The registry of the meters.
+     */
+    private final MeterRegistry registry;
+    /**
+     * Number of classified words.
+     */
+    private final Counter words;
+    /**
+     * Number of classified words missing in the model.
+     */
+    private final Counter unknownWords;
+    /**
+     * Numbers of the determined labels by label.
+     */
+    private final ConcurrentMap<String, Counter> labels = new ConcurrentHashMap<>();
+
+    /**
+     * Class constructor.
+     *
+     * @param registry the registry of the meters
+     */
+    public ClassifierMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.api = new EndpointMetrics(registry, "api");
+        this.batch = new EndpointMetrics(registry, "batch");
+        this.stream = new EndpointMetrics(registry, "stream");
+        this.words = Counter.builder("bayes.words")
+                .description("Number of classified words")
+                .register(registry);
+        this.unknownWords = Counter.builder("bayes.words.unknown")
+                .description("Number of classified words missing in the model")
+                .register(registry);
+    }
+
+    @Override
+    public void classified(String label, int words, int unknownWords) {
+        this.words.increment(words);
+        this.unknownWords.increment(unknownWords);
+        Counter counter = labels.get(label);
+        if (counter == null) counter = labels.computeIfAbsent(label, this::labelCounter);
+        counter.increment();
+    }
+
+    /**
+     * Returns a new counter of the determined label.
+     *
+     * @param label the label
+     * @return the counter
+     */
+    private Counter labelCounter(String label) {
+        return Counter.builder("bayes.labels")
+                .description("Number of sentences classified with the label")
+                .tag("label", label)
+                .register(registry);
+    }
+
+    /**
+     * The request counter and the stage timers of an endpoint.
+     */
+    static final class EndpointMetrics {
+
+        /**
+         * Number of requests.
+         */
+        private final Counter requests;
+        /**
+         * Time of parsing the request body.
+         */
+        private final Timer parse;
+        /**
+         * Time of preprocessing and scoring the texts, they run in one pass.
+         */
+        private final Timer classify;
+        /**
+         * Time of building the response.
+         */
+        private final Timer response;
+
+        /**
+         * Class constructor.
+         *
+         * @param registry the registry of the meters
+         * @param endpoint the name of the endpoint
+         */
+        EndpointMetrics(MeterRegistry registry, String endpoint) {
+            this.requests = Counter.builder("bayes.requests")
+                    .description("Number of classification requests")
+                    .tag("endpoint", endpoint)
+                    .register(registry);
+            this.parse = stageTimer(registry, endpoint, "parse");
+            this.classify = stageTimer(registry, endpoint, "classify");
+            this.response = stageTimer(registry, endpoint, "response");
+        }
+
+        /**
+         * Records a request from the System.nanoTime readings taken at its start
+         * and at the end of every stage.
+         *
+         * @param start the start of the request
+         * @param parsed the end of parsing
+         * @param classified the end of classifying
+         * @param end the end of building the response
+         */
+        void record(long start, long parsed, long classified, long end) {
+            requests.increment();
+            parse.record(parsed - start, TimeUnit.NANOSECONDS);
+            classify.record(classified - parsed, TimeUnit.NANOSECONDS);
+            response.record(end - classified, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Returns a new timer of a request stage publishing a latency histogram.
+         *
+         * @param registry the registry of the meters
+         * @param endpoint the name of the endpoint
+         * @param stage the name of the stage
+         * @return the timer
+         */
+        private static Timer stageTimer(MeterRegistry registry, String endpoint, String stage) {
+            return Timer.builder("bayes.request.stage")
+                    .description("Time of a stage of the classification requests")
+                    .tag("endpoint", endpoint)
+                    .tag("stage", stage)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(500))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package interview.bayes;
+
+import org.json.JSONException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h1>Json Text</h1>
+ * The JsonText program reads a single string member of a json object straight from
+ * the UTF-8 bytes of a request body. The object is scanned once without building
+ * a JSONObject, the other members are skipped and only the value of the member is
+ * decoded into a String. The rest of the object after the member is not checked and
+ * a repeated member is read at its first occurrence. Only standard json is read: the
+ * keys and strings in single quotes and the unquoted keys, which JSONObject also
+ * accepts, are syntax errors. Every malformed object throws a JSONException.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+final class JsonText {
+
+    /**
+     * The UTF-8 bytes of the json object.
+     */
+    private final byte[] json;
+    /**
+     * The position of the next unread byte.
+     */
+    private int position;
+
+    /**
+     * Class constructor.
+     *
+     * @param json the UTF-8 bytes of the json object
+     */
+    private JsonText(byte[] json){
+        this.json = json;
+        this.position = 0;
+    }
+
+    /**
+     * Returns the value of the string member of the json object.
+     *
+     * @param json the UTF-8 bytes of the json object
+     * @param name the name of the member, of ASCII characters
+     * @return the value of the member
+     */
+    static String readString(byte[] json, String name){
+        return new JsonText(json).member(name);
+    }
+
+    /**
+     * Returns the value of the string member with the given name.
+     *
+     * @param name the name of the member
+     * @return the value of the member
+     */
+    private String member(String name){
+        expect('{');
+        if (peek() == '}') throw new JSONException(notFound(name));
+        while (true) {
+            boolean found = keyEquals(name);
+            expect(':');
+            if (found) {
+                if (peek() != '"') {
+                    throw new JSONException("JSONObject[\"" + name + "\"] is not a string.");
+                }
+                return string();
+            }
+            skipValue();
+            byte next = next();
+            if (next == '}') throw new JSONException(notFound(name));
+            if (next != ',') throw syntaxError("Expected a ',' or '}'");
+        }
+    }
+
+    /**
+     * Reads a key and returns whether it equals the name.
+     *
+     * @param name the name of ASCII characters
+     * @return true for the equal key
+     */
+    private boolean keyEquals(String name){
+        if (peek() != '"') throw syntaxError("A JSONObject text must begin with '\"'");
+        int start = position + 1;
+        int end = stringEnd(start);
+        boolean escaped = false;
+        for (int i = start; i < end; i++) {
+            if (json[i] == '\\') escaped = true;
+        }
+        if (escaped) return string().equals(name);
+        position = end + 1;
+        if (end - start != name.length()) return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (json[start + i] != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a string and returns its decoded value.
+     *
+     * @return the value of the string
+     */
+    private String string(){
+        next();
+        int start = position;
+        int end = stringEnd(start);
+        int escape = start;
+        while (escape < end && json[escape] != '\\') escape++;
+        if (escape == end) {
+            position = end + 1;
+            return new String(json, start, end - start, StandardCharsets.UTF_8);
+        }
+        StringBuilder value = new StringBuilder(end - start);
+        int run = start;
+        position = start;
+        while (position < end) {
+            if (json[position] != '\\') {
+                position++;
+                continue;
+            }
+            value.append(new String(json, run, position - run, StandardCharsets.UTF_8));
+            position++;
+            byte escaped = json[position++];
+            switch (escaped) {
+                case 'b': value.append('\b'); break;
+                case 't': value.append('\t'); break;
+                case 'n': value.append('\n'); break;
+                case 'f': value.append('\f'); break;
+                case 'r': value.append('\r'); break;
+                case '"':
+                case '\\':
+                case '/': value.append((char) escaped); break;
+                case 'u':
+                    if (position + 4 > end) throw syntaxError("Illegal escape.");
+                    value.append(hexCharacter());
+                    break;
+                default: throw syntaxError("Illegal escape.");
+            }
+            run = position;
+        }
+        value.append(new String(json, run, end - run, StandardCharsets.UTF_8));
+        position = end + 1;
+        return value.toString();
+    }
+
+    /**
+     * Reads the four hexadecimal digits of a unicode escape and returns its character.
+     *
+     * @return the escaped character
+     */
+    private char hexCharacter(){
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(json[position++], 16);
+            if (digit < 0) throw syntaxError("Illegal escape.");
+            code = code << 4 | digit;
+        }
+        return (char) code;
+    }
+
+    /**
+     * Returns the position of the closing quote of the string starting at start.
+     *
+     * @param start the position after the opening quote
+     * @return the position of the closing quote
+     */
+    private int stringEnd(int start){
+        for (int i = start; i < json.length; i++) {
+            if (json[i] == '\\') {
+                i++;
+            } else if (json[i] == '"') {
+                return i;
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * Skips a value of any type.
+     */
+    private void skipValue(){
+        byte first = peek();
+        if (first == '"') {
+            position = stringEnd(position + 1) + 1;
+            return;
+        }
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            while (position < json.length) {
+                byte b = json[position];
+                if (b == '"') {
+                    position = stringEnd(position + 1) + 1;
+                    continue;
+                }
+                position++;
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return;
+                }
+            }
+            throw syntaxError("Unterminated value");
+        }
+        int start = position;
+        while (position < json.length && json[position] != ',' && json[position] != '}'
+                && json[position] != ']' && !isWhitespace(json[position])) {
+            position++;
+        }
+        if (position == start) throw syntaxError("Missing value");
+    }
+
+    /**
+     * Skips the whitespace and returns the next byte without reading it.
+     *
+     * @return the next byte
+     */
+    private byte peek(){
+        while (position < json.length && isWhitespace(json[position])) position++;
+        if (position == json.length) throw syntaxError("Unexpected end of the text");
+        return json[position];
+    }
+
+    /**
+     * Skips the whitespace and reads the next byte.
+     *
+     * @return the next byte
+     */
+    private byte next(){
+        byte next = peek();
+        position++;
+        return next;
+    }
+
+    /**
+     * Skips the whitespace and reads the expected byte.
+     *
+     * @param expected the expected character
+     */
+    private void expect(char expected){
+        if (next() != expected) throw syntaxError("Expected a '" + expected + "'");
+    }
+
+    /**
+     * Returns a new exception with the message and the position of the syntax error.
+     *
+     * @param message the message of the error
+     * @return the exception
+     */
+    private JSONException syntaxError(String message){
+        return new JSONException(message + " at " + position);
+    }
+
+    /**
+     * Returns the message of a missing member.
+     *
+     * @param name the name of the member
+     * @return the message
+     */
+    private static String notFound(String name){
+        return "JSONObject[\"" + name + "\"] not found.";
+    }
+
+    /**
+     * Returns whether the byte is json whitespace.
+     *
+     * @param b the byte
+     * @return true for whitespace
+     */
+    private static boolean isWhitespace(byte b){
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+}
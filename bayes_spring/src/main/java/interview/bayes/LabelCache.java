@@ -0,0 +1,139 @@
+package interview.bayes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import interview.core.ClassificationListener;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * <h1>Label Cache</h1>
+ * The LabelCache program caches the labels of recently classified texts, so repeated
+ * texts are not preprocessed and scored again. The cache is bounded by the estimated
+ * memory of its entries and evicts by frequency and recency (Caffeine's W-TinyLFU),
+ * without global locks. Texts are the keys exactly as received, as any change of
+ * the whitespace can change the label. Every entry remembers the model it was
+ * classified by and is only used for the same model; all entries are dropped when
+ * a new model is loaded. Its hits, misses and evictions are exported as the
+ * metrics of the cache "bayes.labels".
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@Component
+public class LabelCache {
+
+    /**
+     * The estimated number of bytes of an entry besides the characters of its text.
+     */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    /**
+     * The cached labels by text, null when the cache is disabled.
+     */
+    private final Cache<String, CachedLabel> cache;
+    /**
+     * The longest text that gets cached.
+     */
+    private final int maxTextLength;
+
+    /**
+     * Class constructor.
+     *
+     * @param enabled whether the labels are cached
+     * @param maxBytes the estimated memory of the entries the cache is bounded by
+     * @param maxTextLength the longest text that gets cached
+     * @param registry the registry of the cache metrics
+     */
+    public LabelCache(@Value("${bayes.cache.enabled:false}") boolean enabled,
+                      @Value("${bayes.cache.max-bytes:16777216}") long maxBytes,
+                      @Value("${bayes.cache.max-text-length:1024}") int maxTextLength,
+                      MeterRegistry registry) {
+        this.maxTextLength = maxTextLength;
+        if (enabled) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumWeight(maxBytes)
+                    .weigher((String text, CachedLabel label) -> ENTRY_OVERHEAD + 2 * text.length())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(registry, cache, "bayes.labels");
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Returns the label of the text determined by the model, from the cache when the
+     * text was classified by the same model before. The listener is notified of hits
+     * as well, with the numbers of words of the cached classification.
+     *
+     * @param model the classifier
+     * @param text the text to label
+     * @param listener the listener of the classification or null
+     * @return the determined label
+     */
+    public String classify(NaiveBayesClassifier model, String text, ClassificationListener listener) {
+        if (cache == null || text.length() > maxTextLength) return model.classify(text, listener);
+        CachedLabel cached = cache.getIfPresent(text);
+        if (cached == null || cached.model != model) {
+            cached = new CachedLabel(model);
+            model.classify(text, cached);
+            cache.put(text, cached);
+        }
+        if (listener != null) listener.classified(cached.label, cached.words, cached.unknownWords);
+        return cached.label;
+    }
+
+    /**
+     * Drops all cached labels when a new model is published.
+     *
+     * @param model the new classifier
+     */
+    @EventListener
+    public void modelLoaded(NaiveBayesClassifier model) {
+        if (cache != null) cache.invalidateAll();
+    }
+
+    /**
+     * The label of a text together with the model that determined it and the numbers
+     * of words of the classification.
+     */
+    private static final class CachedLabel implements ClassificationListener {
+
+        /**
+         * The classifier that determined the label.
+         */
+        final NaiveBayesClassifier model;
+        /**
+         * The determined label.
+         */
+        String label;
+        /**
+         * The number of scored words of the text.
+         */
+        int words;
+        /**
+         * The number of words missing in the model.
+         */
+        int unknownWords;
+
+        /**
+         * Class constructor.
+         *
+         * @param model the classifier determining the label
+         */
+        CachedLabel(NaiveBayesClassifier model) {
+            this.model = model;
+        }
+
+        @Override
+        public void classified(String label, int words, int unknownWords) {
+            this.label = label;
+            this.words = words;
+            this.unknownWords = unknownWords;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package interview.bayes;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <h1>Lite Server</h1>
+ * The LiteServer program serves GET / and POST /api like the Spring server, but on
+ * the HTTP server built into the JDK and without starting Spring, which makes it
+ * start in a fraction of the time and with a fraction of the memory. The model is
+ * loaded and watched by the same ModelHolder and classified by the same
+ * NaiveBayesClassifier, so the responses are the same. A request body that is not
+ * a json object with the "text" attribute, an explain that is not a number and a
+ * query with a malformed % escape get 400 from both servers, only the bodies of
+ * the errors differ. It starts listening only once the model is loaded and warmed
+ * up by ModelWarmUp. The requests are handled on a new virtual thread each on Java
+ * 21, otherwise on a pool of platform threads. The metrics, the label cache, the
+ * named models and the other endpoints are only served by the Spring server. It is
+ * configured by the system properties of the same names as the properties of the
+ * Spring server, bayes.cds.training-run included:
+ * <pre>
+ * java -Dserver.port=8080 -Dloader.main=interview.bayes.LiteServer -cp bayes.jar org.springframework.boot.loader.PropertiesLauncher
+ * </pre>
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+public class LiteServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LiteServer.class);
+
+    /**
+     * The largest number of words returned in an explained response.
+     */
+    private static final int MAX_EXPLAINED_WORDS = 100;
+    /**
+     * The number of platform threads handling the requests without virtual threads,
+     * the default of the Tomcat of the Spring server.
+     */
+    private static final int PLATFORM_THREADS = 200;
+
+    /**
+     * The holder of the served classifier.
+     */
+    private final ModelHolder modelHolder;
+    /**
+     * The encoded responses of POST /api by label.
+     */
+    private final ConcurrentMap<String, byte[]> labelResponses = new ConcurrentHashMap<>();
+
+    /**
+     * Class constructor.
+     *
+     * @param modelHolder the holder of the served classifier
+     */
+    LiteServer(ModelHolder modelHolder) {
+        this.modelHolder = modelHolder;
+    }
+
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        // the JDK server writes the headers and the body of a response apart, so with Nagle's algorithm the body
+        // waits for the delayed acknowledgement of the headers, about 40 ms, on every kept-alive connection
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        ModelWarmUp modelWarmUp = new ModelWarmUp(System.getProperty("bayes.warmup.sentences", ""),
+                Integer.getInteger("bayes.warmup.iterations", 5000), Long.getLong("bayes.warmup.max-millis", 5000));
+        ModelHolder modelHolder = new ModelHolder(event -> modelWarmUp.modelLoaded((NaiveBayesClassifier) event));
+        modelHolder.modelPath = System.getProperty("bayes.model.path", "");
+        modelHolder.watch = Boolean.parseBoolean(System.getProperty("bayes.model.watch", "true"));
+        modelHolder.watchDelayMillis = Long.getLong("bayes.model.watch-delay-ms", 500);
+        modelHolder.start();
+        if (modelHolder.get() == null) throw new IOException("No model loaded from " + modelHolder.modelFile());
+
+        int port = Integer.getInteger("server.port", 8080);
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), Integer.getInteger("bayes.lite.backlog", 1024));
+        server.createContext("/", new LiteServer(modelHolder)::handle);
+        server.setExecutor(executor());
+        server.start();
+        LOGGER.info("Started LiteServer on port {} in {} ms", server.getAddress().getPort(), (System.nanoTime() - start) / 1_000_000);
+        if (Boolean.getBoolean("bayes.cds.training-run")) {
+            CdsTrainingRun.exercise(server.getAddress().getPort());
+            LOGGER.info("Training run finished, exiting");
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Returns the executor handling the requests, a new virtual thread per request
+     * unless bayes.server.virtual-threads is false or the Java runtime has none.
+     *
+     * @return the executor
+     */
+    private static ExecutorService executor() {
+        if (Boolean.parseBoolean(System.getProperty("bayes.server.virtual-threads", "true"))) {
+            ExecutorService executor = VirtualThreadConfiguration.newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                LOGGER.info("Serving requests on virtual threads");
+                return executor;
+            }
+        }
+        return Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    /**
+     * Handles a request: GET / and POST /api, with the request parameter explain=k
+     * explaining the label as POST /api of the Spring server does. A request body
+     * that is not a json object with the "text" attribute, an explain that is not a
+     * number and a malformed % escape in the query get 400, the connection of a
+     * failed response is closed by the HTTP server.
+     *
+     * @param exchange the request and its response
+     */
+    void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals("/") && method.equals("GET")) {
+                send(exchange, 200, "text/plain;charset=UTF-8", "Please POST your text!".getBytes(StandardCharsets.UTF_8));
+            } else if (path.equals("/api") && method.equals("POST")) {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                byte[] responseBody;
+                try {
+                    responseBody = classify(body, parameter(exchange.getRequestURI().getRawQuery(), "explain"));
+                } catch (JSONException | IllegalArgumentException e) {
+                    // a NumberFormatException of explain or a malformed % escape of URLDecoder
+                    send(exchange, 400, "text/plain;charset=UTF-8", String.valueOf(e.getMessage()).getBytes(StandardCharsets.UTF_8));
+                    return;
+                } catch (RuntimeException e) {
+                    LOGGER.error("Classifying the request failed", e);
+                    send(exchange, 500, "text/plain;charset=UTF-8", new byte[0]);
+                    return;
+                }
+                send(exchange, 200, "application/json", responseBody);
+            } else if (path.equals("/") || path.equals("/api")) {
+                exchange.getResponseHeaders().set("Allow", path.equals("/") ? "GET" : "POST");
+                send(exchange, 405, "text/plain;charset=UTF-8", new byte[0]);
+            } else {
+                send(exchange, 404, "text/plain;charset=UTF-8", new byte[0]);
+            }
+        }
+    }
+
+    /**
+     * Returns the response body of POST /api for the request body.
+     *
+     * @param body the UTF-8 bytes of the json request body
+     * @param explain the number of explaining words, null for the label alone
+     * @return the UTF-8 bytes of the response body
+     */
+    private byte[] classify(byte[] body, String explain) {
+        String textToClassify = JsonText.readString(body, "text");
+        NaiveBayesClassifier model = modelHolder.get();
+        if (explain == null) return labelResponse(model.classify(textToClassify));
+        int topWords = Math.min(Math.max(Integer.parseInt(explain), 0), MAX_EXPLAINED_WORDS);
+        return BayesController.explanationResponse(model.explain(textToClassify, topWords, null));
+    }
+
+    /**
+     * Returns the UTF-8 encoded response of POST /api with the label, encoded once
+     * per label.
+     *
+     * @param label the determined label
+     * @return the encoded response
+     */
+    private byte[] labelResponse(String label) {
+        return labelResponses.computeIfAbsent(label,
+                l -> ("{ \n \"label\": " + JSONObject.quote(l) + " \n }").getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Sends the response with the given status and body.
+     *
+     * @param exchange the request and its response
+     * @param status the HTTP status
+     * @param contentType the content type of the body
+     * @param body the body
+     */
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        }
+    }
+
+    /**
+     * Returns the value of the parameter of the raw query, the first one when it is
+     * repeated.
+     *
+     * @param query the raw query, null when there is none
+     * @param name the name of the parameter
+     * @return the decoded value, null when the parameter is missing
+     */
+    private static String parameter(String query, String name) {
+        if (query == null) return null;
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            if (URLDecoder.decode(key, StandardCharsets.UTF_8).equals(name)) {
+                return equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,238 @@
+package interview.bayes;
+
+import interview.core.ClassificationListener;
+import interview.core.CompiledModel;
+import interview.core.Preprocessor;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <h1>Micro Batcher</h1>
+ * The MicroBatcher program coalesces the concurrent classifications of POST /api
+ * when bayes.batcher.enabled is true. The request threads queue their texts and
+ * wait for the futures of their labels, while a single worker thread takes the
+ * first queued text, collects the following ones until the batch holds max-batch
+ * texts or max-delay has passed since the first one, and then scores the whole
+ * batch in one pass by a single reused scorer, which keeps the scorer and the
+ * likelihood rows of the common words in the caches of one core. The scoring
+ * allocates nothing, only the queued request and the future of its label are
+ * allocated per text. With max-delay 0 only the texts already queued are batched,
+ * so a lone request waits for no other. When the queue is full or the batcher is
+ * stopped the text is classified on the request thread, as it is when it is still
+ * queued after the timeout. A text taken by the worker but not labelled within
+ * the timeout fails. The batch sizes are exported as the summary
+ * "bayes.batcher.batch.size".
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@Component
+public class MicroBatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MicroBatcher.class);
+
+    /**
+     * The queued texts, null when the batcher is disabled.
+     */
+    final BlockingQueue<Request> queue;
+    /**
+     * The largest number of texts scored in one batch.
+     */
+    private final int maxBatch;
+    /**
+     * The longest wait for more texts after the first text of a batch, in nanoseconds.
+     */
+    private final long maxDelayNanos;
+    /**
+     * The longest wait for the label of a queued text, in milliseconds.
+     */
+    private final long timeoutMillis;
+    /**
+     * The sizes of the scored batches.
+     */
+    private final DistributionSummary batchSizes;
+    /**
+     * The worker scoring the batches, null when the batcher is disabled.
+     */
+    private final Thread worker;
+    /**
+     * Whether the worker is stopped.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Class constructor.
+     *
+     * @param enabled whether the classifications are batched
+     * @param maxBatch the largest number of texts scored in one batch
+     * @param maxDelayMicros the longest wait for more texts after the first one in microseconds
+     * @param queueCapacity the largest number of queued texts
+     * @param timeoutMillis the longest wait for the label of a queued text in milliseconds
+     * @param registry the registry of the batch size metrics
+     */
+    public MicroBatcher(@Value("${bayes.batcher.enabled:false}") boolean enabled,
+                        @Value("${bayes.batcher.max-batch:64}") int maxBatch,
+                        @Value("${bayes.batcher.max-delay-us:100}") long maxDelayMicros,
+                        @Value("${bayes.batcher.queue-capacity:4096}") int queueCapacity,
+                        @Value("${bayes.batcher.timeout-ms:1000}") long timeoutMillis,
+                        MeterRegistry registry) {
+        if (maxBatch < 1) throw new IllegalArgumentException("Unsupported bayes.batcher.max-batch " + maxBatch);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.timeoutMillis = timeoutMillis;
+        this.batchSizes = DistributionSummary.builder("bayes.batcher.batch.size")
+                .description("Texts scored in one batch")
+                .register(registry);
+        if (enabled) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.worker = new Thread(this::run, "micro-batcher");
+            this.worker.setDaemon(true);
+            this.worker.start();
+            LOGGER.info("Batching up to {} texts within {} us", maxBatch, maxDelayMicros);
+        } else {
+            this.queue = null;
+            this.worker = null;
+        }
+    }
+
+    /**
+     * Returns whether the classifications are batched.
+     *
+     * @return true when enabled
+     */
+    public boolean isEnabled() {
+        return queue != null;
+    }
+
+    /**
+     * Classifies the text by the classifier in the next batch and returns its label,
+     * notifying the listener unless it is null. The listener is called from the
+     * worker thread, or from the request thread when the text is not batched.
+     *
+     * @param model the classifier
+     * @param text the text to label
+     * @param listener the listener of the classification or null
+     * @return the determined label
+     * @throws IllegalStateException when the worker takes the text but does not label it in time
+     */
+    public String classify(NaiveBayesClassifier model, String text, ClassificationListener listener) {
+        if (queue == null || stopped) return model.classify(text, listener);
+        Request request = new Request(model, text, listener);
+        if (!queue.offer(request)) return model.classify(text, listener);
+        // a text queued after stop drained the queue would never be taken
+        if (stopped && queue.remove(request)) return model.classify(text, listener);
+        try {
+            return request.label.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            if (queue.remove(request)) return model.classify(text, listener);
+            throw new IllegalStateException("No label within " + timeoutMillis + " ms", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue.remove(request);
+            throw new IllegalStateException("Interrupted waiting for the label", e);
+        }
+    }
+
+    /**
+     * Stops the worker, the texts still queued are failed and the later texts are
+     * classified on their request threads.
+     */
+    @PreDestroy
+    public void stop() {
+        if (worker == null) return;
+        stopped = true;
+        worker.interrupt();
+        for (Request request; (request = queue.poll()) != null; ) {
+            request.label.completeExceptionally(new IllegalStateException("The batcher is stopped"));
+        }
+    }
+
+    /**
+     * Collects and scores the batches until interrupted.
+     */
+    private void run() {
+        ArrayList<Request> batch = new ArrayList<>(maxBatch);
+        NaiveBayesClassifier scoredModel = null;
+        CompiledModel.Scorer scorer = null;
+        try {
+            while (true) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                queue.drainTo(batch, maxBatch - batch.size());
+                while (batch.size() < maxBatch) {
+                    long wait = deadline - System.nanoTime();
+                    if (wait <= 0) break;
+                    Request next = queue.poll(wait, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+                for (Request request : batch) {
+                    try {
+                        if (request.model != scoredModel) {
+                            scoredModel = request.model;
+                            scorer = scoredModel.scorer();
+                        }
+                        Preprocessor.preprocess(request.text, scorer);
+                        request.label.complete(scoredModel.label(scorer.finish(request.listener)));
+                    } catch (RuntimeException e) {
+                        // a failed text may leave the scorer in the middle of a sentence
+                        scoredModel = null;
+                        request.label.completeExceptionally(e);
+                    }
+                }
+                batchSizes.record(batch.size());
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            for (Request request : batch) {
+                request.label.completeExceptionally(new IllegalStateException("The batcher is stopped"));
+            }
+        }
+    }
+
+    /**
+     * A queued text with the future of its label.
+     */
+    private static final class Request {
+
+        /**
+         * The classifier of the text.
+         */
+        final NaiveBayesClassifier model;
+        /**
+         * The text to label.
+         */
+        final String text;
+        /**
+         * The listener of the classification or null.
+         */
+        final ClassificationListener listener;
+        /**
+         * The future of the determined label.
+         */
+        final CompletableFuture<String> label = new CompletableFuture<>();
+
+        Request(NaiveBayesClassifier model, String text, ClassificationListener listener) {
+            this.model = model;
+            this.text = text;
+            this.listener = listener;
+        }
+    }
+}
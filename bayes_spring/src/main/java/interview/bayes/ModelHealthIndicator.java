@@ -0,0 +1,53 @@
+package interview.bayes;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * <h1>Model Health Indicator</h1>
+ * The ModelHealthIndicator program reports the health "model" of the served model:
+ * out of service until the first model is loaded and warmed up, then up. It is part
+ * of the readiness group, so GET /actuator/health/readiness answers 503 until the
+ * server can serve the requests at its usual latency, while the liveness is not
+ * affected.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@Component
+public class ModelHealthIndicator implements HealthIndicator {
+
+    /**
+     * The holder of the served classifier.
+     */
+    private final ModelHolder modelHolder;
+    /**
+     * The warm-up of the first model.
+     */
+    private final ModelWarmUp modelWarmUp;
+
+    /**
+     * Class constructor.
+     *
+     * @param modelHolder the holder of the served classifier
+     * @param modelWarmUp the warm-up of the first model
+     */
+    public ModelHealthIndicator(ModelHolder modelHolder, ModelWarmUp modelWarmUp) {
+        this.modelHolder = modelHolder;
+        this.modelWarmUp = modelWarmUp;
+    }
+
+    /**
+     * Returns the health of the served model.
+     *
+     * @return up once the first model is loaded and warmed up
+     */
+    @Override
+    public Health health() {
+        NaiveBayesClassifier model = modelHolder.get();
+        if (model == null) return Health.outOfService().withDetail("model", "not loaded").build();
+        if (!modelWarmUp.isFinished()) return Health.outOfService().withDetail("model", "warming up").build();
+        return Health.up().withDetail("memoryBytes", model.memoryBytes()).build();
+    }
+}
@@ -0,0 +1,197 @@
+package interview.bayes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * <h1>Model Holder</h1>
+ * The ModelHolder program holds the NaiveBayesClassifier served by the server and
+ * replaces it when the model file changes. A new model is loaded completely in the
+ * background and then published by an atomic swap of the reference, so requests
+ * never wait for a reload and never see a partially loaded model. Requests already
+ * running finish with the model they started with. Every published classifier is
+ * also sent as an application event.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@Component
+public class ModelHolder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelHolder.class);
+
+    /**
+     * The currently served classifier, null until the first model is loaded.
+     */
+    private final AtomicReference<NaiveBayesClassifier> model = new AtomicReference<>();
+
+    /**
+     * The publisher of the loaded classifiers.
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * The path of the model file, the binary model file or the json file in the
+     * working directory when empty.
+     */
+    @Value("${bayes.model.path:}")
+    String modelPath;
+
+    /**
+     * The directory of the binary model file and the json file used when the path
+     * of the model file is empty, the working directory.
+     */
+    Path defaultDirectory = Paths.get(".");
+
+    /**
+     * Whether the model file is watched and reloaded when it changes.
+     */
+    @Value("${bayes.model.watch:true}")
+    boolean watch;
+
+    /**
+     * Milliseconds waited after a change of the model file before reloading it,
+     * letting further changes of the same write settle.
+     */
+    @Value("${bayes.model.watch-delay-ms:500}")
+    long watchDelayMillis;
+
+    /**
+     * Class constructor.
+     *
+     * @param eventPublisher the publisher of the loaded classifiers
+     */
+    public ModelHolder(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Returns the currently served classifier.
+     *
+     * @return the classifier, null before the first model is loaded
+     */
+    public NaiveBayesClassifier get() {
+        return model.get();
+    }
+
+    /**
+     * Loads the model file and starts watching it when enabled. A model file that
+     * cannot be loaded is logged and no model is served, and the watcher still loads
+     * the file once it is replaced by a valid one.
+     */
+    public void start() throws IOException {
+        try {
+            reload();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Loading model {} failed, serving no model until it loads", modelFile(), e);
+        }
+        if (watch) startWatching(watchedFiles());
+    }
+
+    /**
+     * Loads the model file into a new classifier and publishes it. When the file
+     * cannot be loaded the current classifier stays in place.
+     */
+    public synchronized void reload() throws IOException {
+        Path path = modelFile();
+        long start = System.nanoTime();
+        NaiveBayesClassifier loaded = NaiveBayesClassifier.fromFile(path);
+        model.set(loaded);
+        LOGGER.info("Loaded model {} in {} ms", path, (System.nanoTime() - start) / 1_000_000);
+        eventPublisher.publishEvent(loaded);
+    }
+
+    /**
+     * Returns the path of the model file.
+     *
+     * @return the path of the model file
+     */
+    Path modelFile() {
+        if (!modelPath.isEmpty()) return Paths.get(modelPath);
+        Path path = defaultDirectory.resolve("params.bin");
+        if (!Files.exists(path)) path = defaultDirectory.resolve("params.json");
+        return path;
+    }
+
+    /**
+     * Returns the paths of the watched files, both the binary model file and the json
+     * file when the path of the model file is empty, so a binary model file written
+     * after the json one was loaded replaces it.
+     *
+     * @return the paths of the watched files, all in the same directory
+     */
+    private List<Path> watchedFiles() {
+        if (!modelPath.isEmpty()) return List.of(Paths.get(modelPath));
+        return List.of(defaultDirectory.resolve("params.bin"), defaultDirectory.resolve("params.json"));
+    }
+
+    /**
+     * Starts a daemon thread reloading the model whenever one of the watched files
+     * is created or modified, from the model file resolved at that time. Model files
+     * should be replaced by renaming a completely written file over them, as the
+     * training program does.
+     *
+     * @param paths the paths of the watched files, all in the same directory
+     */
+    private void startWatching(List<Path> paths) throws IOException {
+        Path directory = paths.get(0).toAbsolutePath().getParent();
+        Set<Path> fileNames = paths.stream().map(Path::getFileName).collect(Collectors.toSet());
+        WatchService watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread watcher = new Thread(() -> {
+            try (watchService) {
+                while (true) {
+                    if (!isModelChange(watchService.take(), fileNames)) continue;
+                    Thread.sleep(watchDelayMillis);
+                    for (WatchKey key; (key = watchService.poll()) != null; ) {
+                        isModelChange(key, fileNames);
+                    }
+                    try {
+                        reload();
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.error("Reloading model {} failed, keeping the current model", modelFile(), e);
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                LOGGER.error("Watching model {} failed", paths, e);
+            }
+        }, "model-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Returns whether the events of the key concern a watched file and resets the key.
+     *
+     * @param key the signalled key
+     * @param fileNames the names of the watched files
+     * @return true when a watched file changed
+     */
+    private static boolean isModelChange(WatchKey key, Set<Path> fileNames) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileNames.contains(event.context())) changed = true;
+        }
+        key.reset();
+        return changed;
+    }
+}
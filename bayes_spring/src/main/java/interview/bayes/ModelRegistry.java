@@ -0,0 +1,112 @@
+package interview.bayes;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * <h1>Model Registry</h1>
+ * The ModelRegistry program serves many named models from the models directory,
+ * the model "name" from the binary model file name.bin or the json file name.json.
+ * The names batch and stream are reserved, as their requests go to the endpoints
+ * of the same names.
+ * A model is loaded on its first request and stays loaded while it is used. The
+ * registry is bounded by the estimated memory of the loaded models and evicts the
+ * cold ones by frequency and recency (Caffeine's W-TinyLFU). Requests for a model
+ * being loaded wait for the single load instead of loading it again. Binary models
+ * with the same words share one index of the words. Its hits, misses and evictions
+ * are exported as the metrics of the cache "bayes.models".
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@Component
+public class ModelRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelRegistry.class);
+
+    /**
+     * The allowed model names, which can not leave the models directory.
+     */
+    private static final Pattern MODEL_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    /**
+     * The model names shadowed by the endpoints POST /api/batch and POST /api/stream.
+     */
+    private static final Set<String> RESERVED_NAMES = Set.of("batch", "stream");
+
+    /**
+     * The directory of the model files.
+     */
+    private final Path directory;
+    /**
+     * The loaded classifiers by model name.
+     */
+    private final Cache<String, NaiveBayesClassifier> models;
+
+    /**
+     * Class constructor.
+     *
+     * @param directory the directory of the model files
+     * @param maxBytes the estimated memory of the models the registry is bounded by
+     * @param registry the registry of the cache metrics
+     */
+    public ModelRegistry(@Value("${bayes.models.dir:models}") String directory,
+                         @Value("${bayes.models.max-bytes:268435456}") long maxBytes,
+                         MeterRegistry registry) {
+        this.directory = Paths.get(directory);
+        this.models = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String name, NaiveBayesClassifier model) -> (int) Math.min(model.memoryBytes(), Integer.MAX_VALUE))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, models, "bayes.models");
+    }
+
+    /**
+     * Returns the classifier of the named model, loading it when it is not loaded.
+     *
+     * @param name the name of the model
+     * @return the classifier, null when there is no such model or the name is reserved
+     */
+    public NaiveBayesClassifier get(String name) throws IOException {
+        if (!MODEL_NAME.matcher(name).matches() || RESERVED_NAMES.contains(name)) return null;
+        try {
+            return models.get(name, this::load);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Loads the classifier of the named model from its file.
+     *
+     * @param name the name of the model
+     * @return the classifier, null when there is no model file
+     */
+    private NaiveBayesClassifier load(String name) {
+        Path path = directory.resolve(name + ".bin");
+        if (!Files.exists(path)) path = directory.resolve(name + ".json");
+        if (!Files.exists(path)) return null;
+        long start = System.nanoTime();
+        try {
+            NaiveBayesClassifier model = NaiveBayesClassifier.fromFile(path);
+            LOGGER.info("Loaded model {} in {} ms", path, (System.nanoTime() - start) / 1_000_000);
+            return model;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
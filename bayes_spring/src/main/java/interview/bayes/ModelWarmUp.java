@@ -0,0 +1,207 @@
+package interview.bayes;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerInitializedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * <h1>Model Warm Up</h1>
+ * The ModelWarmUp program replays sample sentences as requests of POST /api when
+ * the first model is loaded, every sixteenth one explained. The JIT compiler then
+ * has compiled the hot code before the server reports ready, so the first requests
+ * run at the latency of the following ones. Once the server listens the requests
+ * are sent to it over the loopback, warming up the whole path from the connector
+ * to the encoded response, and they are marked by the header X-Bayes-Warm-Up so
+ * they are not counted in the metrics and are scored without the label cache,
+ * which would otherwise answer the repeated sentences and keep them cached
+ * afterwards. Before that they are replayed in-process
+ * from the read of the body by JsonText to the encoded response. The warm-up stops
+ * after the given number of sentences or time. Later models are not warmed up,
+ * they run the same compiled code.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@Component
+public class ModelWarmUp {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ModelWarmUp.class);
+
+    /**
+     * The header marking the requests of the warm-up.
+     */
+    static final String HEADER = "X-Bayes-Warm-Up";
+
+    /**
+     * The classpath resource of the default sample sentences.
+     */
+    private static final String DEFAULT_SENTENCES = "warmup.txt";
+    /**
+     * The number of explained words of the explained sentences.
+     */
+    private static final int EXPLAINED_WORDS = 10;
+
+    /**
+     * The file of the sample sentences, one per line, the default ones when empty.
+     */
+    private final String sentencesPath;
+    /**
+     * The number of classified sentences.
+     */
+    private final int iterations;
+    /**
+     * The longest time of the warm-up in milliseconds.
+     */
+    private final long maxMillis;
+    /**
+     * Whether the warm-up has finished.
+     */
+    private volatile boolean finished;
+    /**
+     * The local port of the server, 0 until it listens.
+     */
+    private volatile int port;
+
+    /**
+     * Class constructor.
+     *
+     * @param sentencesPath the file of the sample sentences, the default ones when empty
+     * @param iterations the number of classified sentences, 0 for no warm-up
+     * @param maxMillis the longest time of the warm-up in milliseconds
+     */
+    public ModelWarmUp(@Value("${bayes.warmup.sentences:}") String sentencesPath,
+                       @Value("${bayes.warmup.iterations:5000}") int iterations,
+                       @Value("${bayes.warmup.max-millis:5000}") long maxMillis) {
+        this.sentencesPath = sentencesPath;
+        this.iterations = iterations;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Returns whether the warm-up has finished.
+     *
+     * @return true once the first model is warmed up
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Remembers the port of the started server.
+     *
+     * @param event the event of the started server
+     */
+    @EventListener
+    public void serverStarted(WebServerInitializedEvent event) {
+        port = event.getWebServer().getPort();
+    }
+
+    /**
+     * Warms up the first loaded classifier. A warm-up that fails is logged and
+     * counts as finished, as the server serves the same without it.
+     *
+     * @param model the loaded classifier
+     */
+    @EventListener
+    public synchronized void modelLoaded(NaiveBayesClassifier model) {
+        if (finished) return;
+        long start = System.nanoTime();
+        try {
+            long deadline = start + maxMillis * 1_000_000;
+            int warmed = port == 0
+                    ? warmUp(model, readSentences(), iterations, deadline)
+                    : warmUp(port, readSentences(), iterations, deadline);
+            LOGGER.info("Warmed up with {} sentences in {} ms", warmed, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            LOGGER.error("Warming up failed, serving without warm-up", e);
+        }
+        finished = true;
+    }
+
+    /**
+     * Returns the sample sentences.
+     *
+     * @return the sentences
+     */
+    private String[] readSentences() throws IOException {
+        if (!sentencesPath.isEmpty()) {
+            return Files.readAllLines(Paths.get(sentencesPath), StandardCharsets.UTF_8).toArray(String[]::new);
+        }
+        try (InputStream input = ModelWarmUp.class.getClassLoader().getResourceAsStream(DEFAULT_SENTENCES)) {
+            if (input == null) throw new IOException("No resource " + DEFAULT_SENTENCES);
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+        }
+    }
+
+    /**
+     * Replays the sentences in turn through the request path in-process until the number of
+     * iterations or the deadline is reached, and returns the number of replayed
+     * sentences.
+     *
+     * @param model the classifier
+     * @param sentences the sample sentences
+     * @param iterations the number of replayed sentences
+     * @param deadline the System.nanoTime to stop at
+     * @return the number of replayed sentences
+     */
+    static int warmUp(NaiveBayesClassifier model, String[] sentences, int iterations, long deadline) {
+        if (sentences.length == 0) return 0;
+        byte[][] bodies = new byte[sentences.length][];
+        for (int i = 0; i < sentences.length; i++) {
+            bodies[i] = ("{\"text\": " + JSONObject.quote(sentences[i]) + "}").getBytes(StandardCharsets.UTF_8);
+        }
+        int i = 0;
+        for (; i < iterations && (i % 256 != 0 || System.nanoTime() < deadline); i++) {
+            String text = JsonText.readString(bodies[i % bodies.length], "text");
+            if (i % 16 == 0) {
+                BayesController.explanationResponse(model.explain(text, EXPLAINED_WORDS, null));
+            } else {
+                model.classify(text);
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Sends the sentences in turn to POST /api of the server on the local port until
+     * the number of iterations or the deadline is reached, and returns the number of
+     * sent sentences.
+     *
+     * @param port the local port of the server
+     * @param sentences the sample sentences
+     * @param iterations the number of sent sentences
+     * @param deadline the System.nanoTime to stop at
+     * @return the number of sent sentences
+     */
+    private static int warmUp(int port, String[] sentences, int iterations, long deadline) throws IOException, InterruptedException {
+        if (sentences.length == 0) return 0;
+        HttpClient client = HttpClient.newHttpClient();
+        URI api = URI.create("http://localhost:" + port + "/api");
+        URI explain = URI.create(api + "?explain=" + EXPLAINED_WORDS);
+        int i = 0;
+        for (; i < iterations && System.nanoTime() < deadline; i++) {
+            HttpRequest request = HttpRequest.newBuilder(i % 16 == 0 ? explain : api)
+                    .header("Content-Type", "application/json")
+                    .header(HEADER, "true")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"text\": " + JSONObject.quote(sentences[i % sentences.length]) + "}"))
+                    .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) throw new IOException("Warm-up request failed with " + response.statusCode());
+        }
+        return i;
+    }
+}
@@ -1,197 +1,276 @@
 package interview.bayes;
 
+import interview.core.ClassificationListener;
+import interview.core.CompiledModel;
+import interview.core.Explanation;
+import interview.core.Features;
+import interview.core.ModelFile;
+import interview.core.TermIndex;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.nio.DoubleBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Map;
-
 
 /**
- * <h1>Preprocessor</h1>
- * The Preprocessor program contains the methods for text preprocessing for
- * the classifier. It splits the sentences into words and deletes any white-space
- * and punctuation characters.
+ * <h1>Naive Bayes Classifier</h1>
+ * The NaiveBayesClassifier program contains methods for loading the model parameters,
+ * classifying the sentences.
  *
  * @author  Tomas Majer
  * @version 1.0
  */
-class Preprocessor {
+public class NaiveBayesClassifier {
 
     /**
-     * Returns array of Strings of words cleared of white-spaces and
-     * punctuation in the given sentence.
-     *
-     * @param sentence the sentence to preprocess
-     * @return preprocessed words
+     * The labels of json model files written before the labels were stored in them.
      */
-    public static String[] preprocess(String sentence){
-        String[] words = splitToWords(sentence);
-        return normalizeWords(words);
-    }
+    private static final String[] SENTIMENT_LABELS = new String[]{"positive", "neutral", "negative"};
+    /**
+     * The scoring form of the loaded model parameters.
+     */
+    private CompiledModel compiledModel;
 
     /**
-     * Returns array of words in the given sentence.
-     *
-     * @param sentence the sentence to split
-     * @return words in the sentence
+     * Class constructor. The classifier has no labels until the model parameters
+     * are loaded.
      */
-    private static String[] splitToWords(String sentence){
-        return sentence.split(";|\\s+");
+    public NaiveBayesClassifier (){
+        this.compiledModel = compile(Features.UNIGRAMS, new String[0], new TermIndex(0), new double[0], new double[0], new double[0], 1);
     }
 
     /**
-     * Returns array of lower case words with removed punctuation and numbers.
+     * Loads the model parameters from the file at the path filename, either a json
+     * file ending with ".json" or a binary model file.
      *
-     * @param words the words to normalize
-     * @return normalized words
+     * @param filename the path of the model file
      */
-    private static String[] normalizeWords (String[] words){
-        String[] normalized = new String[words.length];
-        for (int i = 0; i < words.length; i++) {
-            normalized[i] = words[i].replaceAll("[^a-zA-Z ]", "").toLowerCase();
+    public void loadParams(Path filename) {
+        try {
+            compiledModel = readParams(filename);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        return normalized;
     }
-}
-
-/**
- * <h1>Naive Bayes Classifier</h1>
- * The NaiveBayesClassifier program contains methods for loading the model parameters,
- * classifying the sentences.
- *
- * @author  Tomas Majer
- * @version 1.0
- */
-public class NaiveBayesClassifier {
 
     /**
-     * The map of unique words and their likelihoods in [positive, neutral, negative] sentiment.
-     */
-    private Map<String, double[]> wordsLikelihoods;
-    /**
-     * Total number of positively labeled words.
-     */
-    private double positiveLabelFrequency;
-    /**
-     * Total number of neutraly labeled words.
-     */
-    private double neutralLabelFrequency;
-    /**
-     * Total number of negatively labeled words.
-     */
-    private double negativeLabelFrequency;
-    /**
-     * Prior probabilities for [positive, neutral, negative] sentiment.
+     * Returns a new classifier with the model parameters loaded from the file at
+     * the path filename, either a json file ending with ".json" or a binary model file.
+     * Unlike loadParams it fails when the file cannot be loaded.
+     *
+     * @param filename the path of the model file
+     * @return the loaded classifier
      */
-    private double[] priors;
+    public static NaiveBayesClassifier fromFile(Path filename) throws IOException {
+        NaiveBayesClassifier classifier = new NaiveBayesClassifier();
+        classifier.compiledModel = readParams(filename);
+        return classifier;
+    }
 
     /**
-     * Class constructor.
+     * Returns the compiled model of the json or binary model file at the path filename.
+     *
+     * @param filename the path of the model file
+     * @return the compiled model
      */
-    public NaiveBayesClassifier (){
-        this.wordsLikelihoods = new HashMap<>();
-        this.positiveLabelFrequency = 0;
-        this.neutralLabelFrequency = 0;
-        this.negativeLabelFrequency = 0;
-        this.priors = new double[3];
+    private static CompiledModel readParams(Path filename) throws IOException {
+        if (filename.toString().endsWith(".json")) {
+            return readJsonParams(filename);
+        }
+        return ModelFile.map(filename);
     }
 
     /**
      * Reads a json file at the path filename containing current model attributes
-     * and loads them to the according object attributes.
+     * and returns the compiled model of them. Files without the "labels" attribute
+     * hold the positive, neutral and negative labels in separate attributes. The
+     * likelihoods of hashed features are keyed by the number of the bucket, the
+     * buckets left out have the likelihoods of unseen words. Files without the
+     * "alpha" attribute were smoothed by adding one.
      *
      * @param filename the path of the json file
+     * @return the compiled model
      */
-    public void loadParams(Path filename) {
+    private static CompiledModel readJsonParams(Path filename) throws IOException {
         try {
             String content = Files.readString(filename, StandardCharsets.UTF_8);
             JSONObject jsonObj = new JSONObject(content);
-            positiveLabelFrequency = jsonObj.getDouble("positiveLabelFrequency");
-            neutralLabelFrequency = jsonObj.getDouble("neutralLabelFrequency");
-            negativeLabelFrequency = jsonObj.getDouble("negativeLabelFrequency");
+            String[] labels;
+            double[] labelFrequencies;
+            if (jsonObj.has("labels")) {
+                JSONArray tempLabels = jsonObj.getJSONArray("labels");
+                JSONArray tempFrequencies = jsonObj.getJSONArray("labelFrequencies");
+                labels = new String[tempLabels.length()];
+                labelFrequencies = new double[tempLabels.length()];
+                for (int i = 0; i < labels.length; i++) {
+                    labels[i] = tempLabels.getString(i);
+                    labelFrequencies[i] = tempFrequencies.getDouble(i);
+                }
+            } else {
+                labels = SENTIMENT_LABELS;
+                labelFrequencies = new double[]{jsonObj.getDouble("positiveLabelFrequency"),
+                        jsonObj.getDouble("neutralLabelFrequency"), jsonObj.getDouble("negativeLabelFrequency")};
+            }
+            int labelCount = labels.length;
             JSONArray tempPriors = jsonObj.getJSONArray("priors");
-            for (int i = 0; i < tempPriors.length(); i++) {
+            double[] priors = new double[labelCount];
+            for (int i = 0; i < labelCount; i++) {
                 priors[i] = tempPriors.getDouble(i);
             }
+            Features features = new Features(jsonObj.optInt("ngrams", 1), jsonObj.optInt("hashBits", 0));
+            double alpha = jsonObj.optDouble("alpha", 1);
             JSONObject likeliHoodsObj = jsonObj.getJSONObject("wordsLikelihoods");
+            TermIndex terms = new TermIndex(features.hashed() ? 0 : likeliHoodsObj.length());
+            double[] logLikelihoods = new double[CompiledModel.likelihoodCount(
+                    features.hashed() ? features.buckets() : likeliHoodsObj.length(), labelCount)];
+            if (features.hashed()) {
+                for (int i = 0; i < logLikelihoods.length; i++) {
+                    logLikelihoods[i] = Math.log(alpha / labelFrequencies[i % labelCount]);
+                }
+            }
             Iterator<String> likeliHoodsIterator = likeliHoodsObj.keys();
             while(likeliHoodsIterator.hasNext()) {
                 String word = likeliHoodsIterator.next();
                 JSONArray tempLikelihoods = likeliHoodsObj.getJSONArray(word);
-                double[] tempLhoodsArray = new double[3];
-                for (int i = 0; i < tempPriors.length(); i++) {
-                    tempLhoodsArray[i] = tempLikelihoods.getDouble(i);
+                int id = features.hashed() ? Integer.parseInt(word) : terms.add(word);
+                for (int i = 0; i < labelCount; i++) {
+                    logLikelihoods[id * labelCount + i] = Math.log(tempLikelihoods.getDouble(i));
                 }
-                wordsLikelihoods.put(word, tempLhoodsArray);
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            return compile(features, labels, terms, logLikelihoods, labelFrequencies, priors, alpha);
+        } catch (JSONException | IllegalArgumentException e) {
+            throw new IOException("Invalid json model file " + filename, e);
         }
     }
 
     /**
-     * Classifies the given sentence and returns the most probable sentiment label.
+     * Returns the estimated number of bytes of the loaded model parameters.
+     *
+     * @return the number of bytes
+     */
+    public long memoryBytes() {
+        return compiledModel.memoryBytes();
+    }
+
+    /**
+     * Classifies the given sentence and returns the most probable label.
      *
      * @param sentence the sentence to label
-     * @return the determined sentiment label
+     * @return the determined label
      */
     public String classify(String sentence) {
-        String[] words = Preprocessor.preprocess(sentence);
-        double[] jointProbabilities = new double[3];
-        double[] defaultLikelihoods = new double[]{1.0 / positiveLabelFrequency, 1.0 / neutralLabelFrequency, 1.0 / negativeLabelFrequency};
-        for (String word: words) {
-            jointProbabilities = addLogs(jointProbabilities,wordsLikelihoods.getOrDefault(word, defaultLikelihoods));
-        }
-        jointProbabilities = addLogs(jointProbabilities, priors);
-        int maxIndex = arrayMax(jointProbabilities);
-        String classification;
-        switch (maxIndex) {
-            case 0:
-                classification = "positive";
-                break;
-            case 1:
-                classification = "neutral";
-                break;
-            case 2:
-                classification = "negative";
-                break;
-            default:
-                classification = "unknown";
-                break;
-        }
-        return classification;
+        return compiledModel.label(compiledModel.classify(sentence));
     }
 
     /**
-     * Element-wise adds natural logarithms of an array elements to an existing array elements.
+     * Classifies the given sentence and returns the most probable label,
+     * notifying the listener unless it is null.
      *
-     * @param modifiedArray the array that gets modified
-     * @param addedLogArray the array that gets added
-     * @return the modified array
+     * @param sentence the sentence to label
+     * @param listener the listener of the classification or null
+     * @return the determined label
+     */
+    public String classify(String sentence, ClassificationListener listener) {
+        return compiledModel.label(compiledModel.classify(sentence, listener));
+    }
+
+    /**
+     * Returns a new scorer of sentences by the loaded model, reused by a single
+     * thread to classify one sentence after another without allocating.
+     *
+     * @return the scorer
      */
-    private double[] addLogs (double[] modifiedArray, double[] addedLogArray){
-        for (int i = 0; i < modifiedArray.length; i++){
-            modifiedArray[i] += Math.log(addedLogArray[i]);
+    public CompiledModel.Scorer scorer() {
+        return compiledModel.scorer();
+    }
+
+    /**
+     * Returns the label of the given index, as determined by a scorer.
+     *
+     * @param index the index of the label
+     * @return the label
+     */
+    public String label(int index) {
+        return compiledModel.label(index);
+    }
+
+    /**
+     * Classifies the given sentence and returns the label with the posterior
+     * probabilities of all labels and the topWords known words that contributed
+     * the most to it, notifying the listener unless it is null.
+     *
+     * @param sentence the sentence to label
+     * @param topWords the number of the returned words
+     * @param listener the listener of the classification or null
+     * @return the explained classification
+     */
+    public Explanation explain(String sentence, int topWords, ClassificationListener listener) {
+        return compiledModel.explain(sentence, topWords, listener);
+    }
+
+    /**
+     * Classifies the given sentences and returns their labels in the same order.
+     * Batches of at least parallelThreshold sentences are classified in parallel
+     * on the common fork-join pool, smaller ones on the calling thread.
+     *
+     * @param sentences the sentences to label
+     * @param parallelThreshold the smallest batch classified in parallel
+     * @return the determined labels
+     */
+    public String[] classify(String[] sentences, int parallelThreshold) {
+        return classify(sentences, parallelThreshold, null);
+    }
+
+    /**
+     * Classifies the given sentences and returns their labels in the same order,
+     * notifying the listener of every sentence unless it is null. The listener
+     * is called from the classifying threads.
+     *
+     * @param sentences the sentences to label
+     * @param parallelThreshold the smallest batch classified in parallel
+     * @param listener the listener of the classifications or null
+     * @return the determined labels
+     */
+    public String[] classify(String[] sentences, int parallelThreshold, ClassificationListener listener) {
+        CompiledModel model = compiledModel;
+        String[] labels = new String[sentences.length];
+        if (sentences.length >= parallelThreshold) {
+            Arrays.parallelSetAll(labels, i -> model.label(model.classify(sentences[i], listener)));
+        } else {
+            for (int i = 0; i < sentences.length; i++) {
+                labels[i] = model.label(model.classify(sentences[i], listener));
+            }
         }
-        return modifiedArray;
+        return labels;
     }
 
     /**
-     * Returns the first index of the array maximum.
+     * Returns the compiled model for the given features, labels, words log-likelihoods,
+     * label frequencies, priors and smoothing.
      *
-     * @param array the array for maximum localisation
-     * @return the maximum index
-     */
-    private int arrayMax (double[] array){
-        int maxIndex = 0;
-        for (int i = 0; i < array.length; i++)
-            maxIndex = Double.compare(array[i], array[maxIndex]) > 0 ? i : maxIndex;
-        return maxIndex;
+     * @param features the scored features of the words
+     * @param labels the labels
+     * @param terms the index of the words
+     * @param logLikelihoods the row-major log-likelihoods of the words
+     * @param labelFrequencies the total numbers of words per label
+     * @param priors the prior probabilities of the labels
+     * @param alpha the count added to every word in every label
+     * @return the compiled model
+     */
+    private static CompiledModel compile (Features features, String[] labels, TermIndex terms, double[] logLikelihoods,
+                                          double[] labelFrequencies, double[] priors, double alpha){
+        double[] logDefaultLikelihoods = new double[labels.length];
+        double[] logPriors = new double[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            logDefaultLikelihoods[i] = Math.log(alpha / labelFrequencies[i]);
+            logPriors[i] = Math.log(priors[i]);
+        }
+        return new CompiledModel(features, labels, terms, DoubleBuffer.wrap(logLikelihoods), logDefaultLikelihoods, logPriors);
     }
 }
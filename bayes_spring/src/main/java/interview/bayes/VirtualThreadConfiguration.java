@@ -0,0 +1,63 @@
+package interview.bayes;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <h1>Virtual Thread Configuration</h1>
+ * The VirtualThreadConfiguration program switches Tomcat from its pool of platform
+ * threads to a new virtual thread per request when bayes.server.virtual-threads
+ * is true. A blocked request then holds no platform thread, so the number of
+ * concurrent requests is bound by server.tomcat.max-connections rather than by
+ * server.tomcat.threads.max. Virtual threads need Java 21, the executor is looked
+ * up at runtime so the server still builds on Java 17 and keeps the platform
+ * threads when run on an older Java.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+@Configuration
+@ConditionalOnProperty(name = "bayes.server.virtual-threads", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    /**
+     * Returns the customizer setting the virtual thread executor to the Tomcat connector.
+     *
+     * @return the customizer of the protocol handler
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer() {
+        return protocolHandler -> {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+                LOGGER.info("Serving requests on virtual threads");
+            }
+        };
+    }
+
+    /**
+     * Returns an executor starting a new virtual thread for each task, or null when
+     * the Java runtime has no virtual threads.
+     *
+     * @return the executor or null
+     */
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Virtual threads need Java 21, running {}; serving requests on platform threads",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package interview.bayes;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.catalina.Globals;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BayesControllerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ModelHolder modelHolder;
+    private ModelRegistry modelRegistry;
+    private BayesController controller;
+    private MockMvc mvc;
+
+    @Before
+    public void setUp() throws Exception {
+        modelHolder = new ModelHolder(event -> { });
+        modelHolder.modelPath = "params.bin";
+        modelHolder.reload();
+        Path models = folder.getRoot().toPath();
+        Files.copy(Paths.get("params.bin"), models.resolve("shop.bin"));
+        modelRegistry = new ModelRegistry(models.toString(), 1L << 28, registry);
+        controller = new BayesController(modelHolder, new ClassifierMetrics(registry),
+                new LabelCache(true, 1L << 24, 1024, registry), modelRegistry,
+                new MicroBatcher(false, 64, 100, 4096, 1000, registry));
+        controller.batchParallelThreshold = 256;
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    public void reloadIsNotServedByDefault() throws Exception {
+        NaiveBayesClassifier model = modelHolder.get();
+        mvc.perform(post("/admin/reload")).andExpect(status().isNotFound());
+        assertSame(model, modelHolder.get());
+    }
+
+    @Test
+    public void reloadReplacesServedModelOnly() throws Exception {
+        controller.reloadEnabled = true;
+        NaiveBayesClassifier model = modelHolder.get();
+        NaiveBayesClassifier shop = modelRegistry.get("shop");
+        mvc.perform(post("/admin/reload"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reloaded").value(true));
+        assertNotSame(model, modelHolder.get());
+        assertSame(shop, modelRegistry.get("shop"));
+    }
+
+    @Test
+    public void streamKeepsClassifyingPastMalformedLines() throws Exception {
+        NaiveBayesClassifier model = modelHolder.get();
+        String body = "{\"id\": 1, \"text\": \"Good shop, nice staff.\"}\n"
+                + "{\"id\": 2, \"text\": \n"
+                + "{\"id\": \"x\", \"other\": 1}\n"
+                + "\n"
+                + "Terrible service, never again.\n"
+                + "{\"text\": \"The shop opens at nine.\"}\n";
+        String response = mvc.perform(post("/api/stream").content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<JSONObject> lines = jsonLines(response);
+        assertEquals(5, lines.size());
+        assertEquals(1, lines.get(0).getInt("id"));
+        assertEquals(model.classify("Good shop, nice staff."), lines.get(0).getString("label"));
+        assertFalse(lines.get(1).has("id"));
+        assertTrue(lines.get(1).has("error"));
+        assertEquals("x", lines.get(2).getString("id"));
+        assertTrue(lines.get(2).has("error"));
+        assertEquals(model.classify("Terrible service, never again."), lines.get(3).getString("label"));
+        assertEquals(model.classify("The shop opens at nine."), lines.get(4).getString("label"));
+    }
+
+    @Test
+    public void streamBypassesLabelCache() throws Exception {
+        mvc.perform(post("/api/stream").content("Good shop, nice staff.\nTerrible service, never again.\n"))
+                .andExpect(status().isOk());
+        assertEquals(0, cachedLabels(), 0);
+        mvc.perform(post("/api").content("{\"text\": \"Good shop, nice staff.\"}"))
+                .andExpect(status().isOk());
+        assertEquals(1, cachedLabels(), 0);
+    }
+
+    @Test
+    public void explainsLabelWithTopWords() throws Exception {
+        String response = mvc.perform(post("/api").param("explain", "2").content("{\"text\": \"Good shop, nice staff.\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JSONObject explanation = new JSONObject(response);
+        assertEquals(modelHolder.get().classify("Good shop, nice staff."), explanation.getString("label"));
+        assertEquals(2, explanation.getJSONArray("words").length());
+    }
+
+    @Test
+    public void answersBadRequestToExplainNotANumber() throws Exception {
+        for (String explain : new String[]{"abc", "", "1.5"}) {
+            mvc.perform(post("/api").param("explain", explain).content("{\"text\": \"Good shop, nice staff.\"}"))
+                    .andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    public void quotesLabelsInResponses() throws Exception {
+        modelHolder.modelPath = TestModels.quotedLabelsModel(folder.getRoot().toPath()).toString();
+        modelHolder.reload();
+
+        String label = mvc.perform(post("/api").content("{\"text\": \"good\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(TestModels.GOOD_LABEL, new JSONObject(label).getString("label"));
+        String explanation = mvc.perform(post("/api").param("explain", "1").content("{\"text\": \"bad\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(TestModels.BAD_LABEL, new JSONObject(explanation).getString("label"));
+        assertTrue(new JSONObject(explanation).getJSONObject("posteriors").has(TestModels.GOOD_LABEL));
+        String labels = mvc.perform(post("/api/batch").content("[\"good\", {\"id\": 2, \"text\": \"bad\"}]"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(TestModels.GOOD_LABEL, new JSONArray(labels).getJSONObject(0).getString("label"));
+        assertEquals(TestModels.BAD_LABEL, new JSONArray(labels).getJSONObject(1).getString("label"));
+        String stream = mvc.perform(post("/api/stream").content("good\nbad\n"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<JSONObject> lines = jsonLines(stream);
+        assertEquals(2, lines.size());
+        assertEquals(TestModels.GOOD_LABEL, lines.get(0).getString("label"));
+        assertEquals(TestModels.BAD_LABEL, lines.get(1).getString("label"));
+    }
+
+    @Test
+    public void answersBadRequestToMalformedJson() throws Exception {
+        for (String body : new String[]{"", "{\"text\": \"truncated", "{'text': 'single quotes'}", "{\"text\": 5}"}) {
+            mvc.perform(post("/api").content(body)).andExpect(status().isBadRequest());
+            mvc.perform(post("/api/shop").content(body)).andExpect(status().isBadRequest());
+        }
+        for (String body : new String[]{"", "[\"truncated\"", "{\"text\": \"not an array\"}", "[{\"id\": 1}]", "[5]"}) {
+            mvc.perform(post("/api/batch").content(body)).andExpect(status().isBadRequest());
+        }
+    }
+
+    @Test
+    public void answersBadRequestToMalformedQuery() throws Exception {
+        // Tomcat drops a parameter it cannot decode and marks the request
+        mvc.perform(post("/api").queryParam("explain", "2").requestAttr(Globals.PARAMETER_PARSE_FAILED_ATTR, Boolean.TRUE)
+                        .content("{\"text\": \"Good shop, nice staff.\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void warmUpRequestsSkipLabelCache() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mvc.perform(post("/api").header(ModelWarmUp.HEADER, "true").content("{\"text\": \"Good shop, nice staff.\"}"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.label").value(modelHolder.get().classify("Good shop, nice staff.")));
+        }
+        assertEquals(0, cachedLabels(), 0);
+        assertEquals(0, registry.get("cache.gets").tag("cache", "bayes.labels").functionCounters().stream()
+                .mapToDouble(FunctionCounter::count).sum(), 0);
+    }
+
+    /**
+     * Returns the json objects of the lines of the newline-delimited response.
+     */
+    private static List<JSONObject> jsonLines(String response) {
+        List<JSONObject> lines = new ArrayList<>();
+        for (String line : response.split("\n")) lines.add(new JSONObject(line));
+        return lines;
+    }
+
+    /**
+     * Returns the number of labels in the label cache.
+     */
+    private double cachedLabels() {
+        return registry.get("cache.size").tag("cache", "bayes.labels").gauge().value();
+    }
+}
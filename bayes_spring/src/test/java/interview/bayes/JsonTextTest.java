@@ -0,0 +1,97 @@
+package interview.bayes;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JsonTextTest {
+
+    @Test
+    public void readsTextAsJSONObject() {
+        String[] bodies = {
+                "{\"text\": \"Good shop, nice staff.\"}",
+                " \n{ \"text\" :\t\"spaced\" } ",
+                "{\"text\": \"\"}",
+                "{\"text\": \"quote \\\" backslash \\\\ slash \\/ controls \\b\\f\\n\\r\\t end\"}",
+                "{\"text\": \"caf\\u00e9 \\u00C9t\\u00e9 \\ud83d\\ude00 \\u0000\"}",
+                "{\"text\": \"café Été 😀 příliš žluťoučký\"}",
+                "{\"te\\u0078t\": \"escaped key\"}",
+                "{\"texts\": \"other\", \"tex\": \"other\", \"text\": \"third\"}",
+                "{\"id\": {\"a\": [1, \"}\", {\"b\": \"\\\"]\"}], \"c\": {}}, \"n\": -1.5e3, \"t\": true, \"f\": false,"
+                        + " \"x\": null, \"list\": [[], [\"text\"]], \"text\": \"after nested\"}",
+                "{\"text\": \"first\", \"id\": 7}",
+        };
+        for (String body : bodies) {
+            assertEquals(body, new JSONObject(body).getString("text"), read(body));
+        }
+    }
+
+    @Test
+    public void failsAsJSONObjectOnMalformedBodies() {
+        String[] bodies = {
+                "",
+                "   ",
+                "{",
+                "{}",
+                "[\"text\"]",
+                "\"text\"",
+                "{\"text\"",
+                "{\"text\": ",
+                "{\"text\": \"truncated",
+                "{\"text\": \"truncated\\",
+                "{\"id\": [1, 2, \"text\": \"x\"}",
+                "{\"id\": 1 \"text\": \"x\"}",
+                "{\"other\": \"x\"}",
+                "{\"text\": 5}",
+                "{\"text\": null}",
+                "{\"text\": true}",
+                "{\"text\": [\"x\"]}",
+                "{\"text\": {\"text\": \"x\"}}",
+                "{\"text\": \"bad \\uZZZZ\"}",
+                "{\"text\": \"short \\u12\"}",
+                "{\"text\": \"bad \\q escape\"}",
+        };
+        for (String body : bodies) {
+            assertFails(body, () -> new JSONObject(body).getString("text"));
+            assertFails(body, () -> read(body));
+        }
+    }
+
+    @Test
+    public void rejectsNonStandardJsonAcceptedByJSONObject() {
+        String[] bodies = {
+                "{'text': 'single quotes'}",
+                "{text: \"unquoted key\"}",
+                "{\"text\": 'single quoted value'}",
+                "{\"text\": \"signed escape \\u-001\"}",
+        };
+        for (String body : bodies) {
+            new JSONObject(body).getString("text");
+            assertFails(body, () -> read(body));
+        }
+    }
+
+    /**
+     * Returns the "text" member of the json body read by JsonText.
+     */
+    private static String read(String body) {
+        return JsonText.readString(body.getBytes(StandardCharsets.UTF_8), "text");
+    }
+
+    /**
+     * Asserts that reading the body throws a JSONException.
+     */
+    private static void assertFails(String body, Runnable read) {
+        try {
+            read.run();
+            fail("No JSONException for " + body);
+        } catch (JSONException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package interview.bayes;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LiteServerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ModelHolder modelHolder;
+    private HttpServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        modelHolder = new ModelHolder(event -> { });
+        modelHolder.modelPath = "params.bin";
+        modelHolder.reload();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new LiteServer(modelHolder)::handle);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void explainsLabelWithTopWords() throws Exception {
+        HttpResponse<String> response = post("/api?explain=2", "{\"text\": \"Good shop, nice staff.\"}");
+        assertEquals(200, response.statusCode());
+        JSONObject explanation = new JSONObject(response.body());
+        assertEquals(modelHolder.get().classify("Good shop, nice staff."), explanation.getString("label"));
+        assertEquals(2, explanation.getJSONArray("words").length());
+    }
+
+    @Test
+    public void answersBadRequestToExplainNotANumber() throws Exception {
+        for (String query : new String[]{"?explain=abc", "?explain=", "?explain", "?explain=1.5"}) {
+            assertEquals(query, 400, post("/api" + query, "{\"text\": \"Good shop, nice staff.\"}").statusCode());
+        }
+    }
+
+    @Test
+    public void quotesLabelsInResponses() throws Exception {
+        modelHolder.modelPath = TestModels.quotedLabelsModel(folder.getRoot().toPath()).toString();
+        modelHolder.reload();
+
+        HttpResponse<String> label = post("/api", "{\"text\": \"good\"}");
+        assertEquals(200, label.statusCode());
+        assertEquals(TestModels.GOOD_LABEL, new JSONObject(label.body()).getString("label"));
+        HttpResponse<String> explanation = post("/api?explain=1", "{\"text\": \"bad\"}");
+        assertEquals(200, explanation.statusCode());
+        assertEquals(TestModels.BAD_LABEL, new JSONObject(explanation.body()).getString("label"));
+        assertTrue(new JSONObject(explanation.body()).getJSONObject("posteriors").has(TestModels.GOOD_LABEL));
+    }
+
+    @Test
+    public void answersBadRequestToMalformedJson() throws Exception {
+        for (String body : new String[]{"", "{\"text\": \"truncated", "{'text': 'single quotes'}", "{\"text\": 5}"}) {
+            assertEquals(body, 400, post("/api", body).statusCode());
+        }
+    }
+
+    @Test
+    public void answersBadRequestToMalformedEscapes() throws Exception {
+        for (String query : new String[]{"?explain=%zz", "?explain=%2", "?%zz=1"}) {
+            // the URI class of HttpClient rejects these queries, so they are sent as they are
+            HttpURLConnection connection = (HttpURLConnection) new URL(address() + "/api" + query).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write("{\"text\": \"Good shop, nice staff.\"}".getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(query, 400, connection.getResponseCode());
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void answersAsSpringController() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BayesController controller = new BayesController(modelHolder, new ClassifierMetrics(registry),
+                new LabelCache(false, 1L << 24, 1024, registry), new ModelRegistry("models", 1L << 28, registry),
+                new MicroBatcher(false, 64, 100, 4096, 1000, registry));
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        String[] bodies = {"{\"text\": \"Good shop, nice staff.\"}", "{\"id\": 7, \"text\": \"Terrible service.\"}",
+                "", "{\"text\": \"truncated", "{'text': 'single quotes'}", "{\"text\": null}", "[\"text\"]"};
+        String[] queries = {"", "?explain=2", "?explain=0", "?explain=abc", "?explain="};
+        for (String body : bodies) {
+            for (String query : queries) {
+                HttpResponse<String> lite = post("/api" + query, body);
+                MockHttpServletResponse spring = mvc.perform(MockMvcRequestBuilders.post("/api" + query).content(body))
+                        .andReturn().getResponse();
+                assertEquals(body + query, spring.getStatus(), lite.statusCode());
+                if (lite.statusCode() == 200) assertEquals(body + query, spring.getContentAsString(), lite.body());
+            }
+        }
+    }
+
+    /**
+     * Returns the address of the server.
+     */
+    private String address() {
+        return "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the response of the server to the POST request.
+     */
+    private HttpResponse<String> post(String pathAndQuery, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(address() + pathAndQuery))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
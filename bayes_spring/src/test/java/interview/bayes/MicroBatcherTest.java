@@ -0,0 +1,170 @@
+package interview.bayes;
+
+import interview.core.ClassificationListener;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MicroBatcherTest {
+
+    private static final String[] SENTENCES = {
+            "Good shop, nice staff.", "Terrible service, never again.", "The shop opens at nine.",
+            "Great prices and friendly people.", "Rude staff and dirty floors.", "It is a shop.",
+    };
+
+    private static NaiveBayesClassifier model;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService requests = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private MicroBatcher batcher;
+
+    @BeforeClass
+    public static void loadModel() throws IOException {
+        model = NaiveBayesClassifier.fromFile(Paths.get("params.bin"));
+    }
+
+    @After
+    public void stop() {
+        release.countDown();
+        if (batcher != null) batcher.stop();
+        requests.shutdownNow();
+    }
+
+    @Test(timeout = 30_000)
+    public void batchesConcurrentTextsAndLabelsThemAsTheModel() throws Exception {
+        batcher = new MicroBatcher(true, 8, 100_000, 4096, 10_000, registry);
+        List<Future<String>> labels = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            String text = SENTENCES[i % SENTENCES.length];
+            labels.add(requests.submit(() -> batcher.classify(model, text, null)));
+        }
+        for (int i = 0; i < labels.size(); i++) {
+            assertEquals(model.classify(SENTENCES[i % SENTENCES.length]), labels.get(i).get());
+        }
+        DistributionSummary batchSizes = registry.get("bayes.batcher.batch.size").summary();
+        assertEquals(64, batchSizes.totalAmount(), 0);
+        assertTrue(batchSizes.count() < 64);
+        assertTrue(batchSizes.max() <= 8);
+    }
+
+    @Test(timeout = 30_000)
+    public void failsQueuedTextsOnStopAndClassifiesLaterOnRequestThread() throws Exception {
+        batcher = new MicroBatcher(true, 1, 0, 4096, 60_000, registry);
+        CountDownLatch scoring = new CountDownLatch(1);
+        Future<String> scored = requests.submit(() -> batcher.classify(model, SENTENCES[0], blocking(scoring)));
+        scoring.await();
+        Future<String> queued = requests.submit(() -> batcher.classify(model, SENTENCES[1], null));
+        awaitQueued(1);
+
+        batcher.stop();
+        try {
+            queued.get();
+            fail("Queued text labelled after stop");
+        } catch (ExecutionException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+        release.countDown();
+        assertEquals(model.classify(SENTENCES[0]), scored.get());
+        Thread[] listenerThread = new Thread[1];
+        assertEquals(model.classify(SENTENCES[2]),
+                batcher.classify(model, SENTENCES[2], (label, words, unknownWords) -> listenerThread[0] = Thread.currentThread()));
+        assertSame(Thread.currentThread(), listenerThread[0]);
+    }
+
+    @Test(timeout = 30_000)
+    public void classifiesOnRequestThreadWhenQueueIsFull() throws Exception {
+        batcher = new MicroBatcher(true, 1, 0, 1, 10_000, registry);
+        CountDownLatch scoring = new CountDownLatch(1);
+        Future<String> scored = requests.submit(() -> batcher.classify(model, SENTENCES[0], blocking(scoring)));
+        scoring.await();
+        Future<String> queued = requests.submit(() -> batcher.classify(model, SENTENCES[1], null));
+        awaitQueued(1);
+
+        Thread[] listenerThread = new Thread[1];
+        assertEquals(model.classify(SENTENCES[2]),
+                batcher.classify(model, SENTENCES[2], (label, words, unknownWords) -> listenerThread[0] = Thread.currentThread()));
+        assertSame(Thread.currentThread(), listenerThread[0]);
+        release.countDown();
+        assertEquals(model.classify(SENTENCES[0]), scored.get());
+        assertEquals(model.classify(SENTENCES[1]), queued.get());
+    }
+
+    @Test(timeout = 30_000)
+    public void classifiesOnRequestThreadWhenStillQueuedAfterTimeout() throws Exception {
+        batcher = new MicroBatcher(true, 1, 0, 4096, 100, registry);
+        CountDownLatch scoring = new CountDownLatch(1);
+        requests.submit(() -> batcher.classify(model, SENTENCES[0], blocking(scoring)));
+        scoring.await();
+
+        assertEquals(model.classify(SENTENCES[1]), batcher.classify(model, SENTENCES[1], null));
+        assertEquals(0, batcher.queue.size());
+    }
+
+    @Test(timeout = 30_000)
+    public void resetsScorerAfterFailedText() {
+        batcher = new MicroBatcher(true, 64, 0, 4096, 10_000, registry);
+        for (String sentence : SENTENCES) {
+            // the scores of a long text left in the scorer would outweigh the next texts
+            String text = String.join(" ", Collections.nCopies(50, sentence));
+            try {
+                batcher.classify(model, text, (label, words, unknownWords) -> {
+                    throw new IllegalArgumentException("Failing listener");
+                });
+                fail("No failure of the listener");
+            } catch (IllegalArgumentException e) {
+                assertEquals("Failing listener", e.getMessage());
+            }
+            try {
+                batcher.classify(model, null, null);
+                fail("No failure of a null text");
+            } catch (NullPointerException e) {
+                // expected
+            }
+            for (String other : SENTENCES) {
+                assertEquals(model.classify(other), batcher.classify(model, other, null));
+            }
+        }
+    }
+
+    /**
+     * Returns a listener counting down the latch and waiting for the release of
+     * the test, so the worker is blocked in the middle of its batch.
+     */
+    private ClassificationListener blocking(CountDownLatch scoring) {
+        return (label, words, unknownWords) -> {
+            scoring.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    /**
+     * Waits until the given number of texts are queued.
+     */
+    private void awaitQueued(int texts) throws InterruptedException {
+        while (batcher.queue.size() < texts) TimeUnit.MILLISECONDS.sleep(1);
+    }
+}
@@ -0,0 +1,78 @@
+package interview.bayes;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ModelHolderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 30_000)
+    public void loadsModelFileMovedInAfterFailedStart() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        ModelHolder modelHolder = watchingHolder();
+        modelHolder.modelPath = directory.resolve("model.bin").toString();
+        modelHolder.start();
+        assertNull(modelHolder.get());
+
+        moveIn(Paths.get("params.bin"), directory.resolve("model.bin"));
+        await(() -> modelHolder.get() != null);
+    }
+
+    @Test(timeout = 30_000)
+    public void loadsBinaryModelWrittenAfterJsonModel() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Files.copy(Paths.get("params.json"), directory.resolve("params.json"));
+        ModelHolder modelHolder = watchingHolder();
+        modelHolder.defaultDirectory = directory;
+        modelHolder.start();
+        NaiveBayesClassifier jsonModel = modelHolder.get();
+        assertNotNull(jsonModel);
+        assertEquals(directory.resolve("params.json"), modelHolder.modelFile());
+
+        moveIn(Paths.get("params.bin"), directory.resolve("params.bin"));
+        await(() -> modelHolder.get() != jsonModel);
+        assertEquals(directory.resolve("params.bin"), modelHolder.modelFile());
+    }
+
+    /**
+     * Returns a holder of the default model files watching them with a short delay.
+     */
+    private static ModelHolder watchingHolder() {
+        ModelHolder modelHolder = new ModelHolder(event -> { });
+        modelHolder.modelPath = "";
+        modelHolder.watch = true;
+        modelHolder.watchDelayMillis = 50;
+        return modelHolder;
+    }
+
+    /**
+     * Copies the file next to the target and renames it over the target, as the
+     * training program replaces the model files.
+     */
+    private static void moveIn(Path source, Path target) throws IOException {
+        Path written = Files.copy(source, target.resolveSibling(target.getFileName() + ".tmp"));
+        Files.move(written, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Waits until the condition holds.
+     */
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) TimeUnit.MILLISECONDS.sleep(10);
+    }
+}
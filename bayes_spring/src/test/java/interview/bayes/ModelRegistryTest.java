@@ -0,0 +1,36 @@
+package interview.bayes;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ModelRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void servesNamedModelsExceptReservedNames() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        for (String name : new String[]{"shop", "batch", "stream", "Batch"}) {
+            Files.copy(Paths.get("params.bin"), directory.resolve(name + ".bin"));
+        }
+        ModelRegistry registry = new ModelRegistry(directory.toString(), 1L << 28, new SimpleMeterRegistry());
+
+        assertNotNull(registry.get("shop"));
+        assertNotNull(registry.get("Batch"));
+        assertNull(registry.get("batch"));
+        assertNull(registry.get("stream"));
+        assertNull(registry.get("missing"));
+        assertNull(registry.get("../params"));
+    }
+}
@@ -0,0 +1,146 @@
+package interview.bayes;
+
+import interview.core.Explanation;
+import interview.core.Features;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static interview.test.CSVReader.readCSV;
+import static org.junit.Assert.assertEquals;
+
+public class ServedModelParityTest {
+
+    private static final String TRAIN_CSV = "../bayes_training/train.csv";
+    private static final String TEST_CSV = "../bayes_training/test.csv";
+
+    private static List<String> testSentences;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void readTestSentences() throws IOException {
+        testSentences = new ArrayList<>();
+        ArrayList<String> rows = readCSV(TEST_CSV);
+        for (String row: rows.subList(1, rows.size())) {
+            testSentences.add(row.substring(row.indexOf(';') + 1));
+        }
+    }
+
+    @Test
+    public void servedModelFilesLabelAsTrainedModel() throws IOException {
+        Features[] variants = {Features.UNIGRAMS, new Features(2, 0), new Features(3, 0), new Features(2, 16)};
+        double[] alphas = {1, 0.5, 0.25, 0.5};
+        for (int v = 0; v < variants.length; v++) {
+            interview.test.NaiveBayesClassifier trained = new interview.test.NaiveBayesClassifier(variants[v], alphas[v]);
+            trained.fit(TRAIN_CSV);
+            Path jsonFile = folder.newFile("params" + v + ".json").toPath();
+            Path binaryFile = folder.newFile("params" + v + ".bin").toPath();
+            trained.writeParams(jsonFile.toString());
+            trained.writeBinaryParams(binaryFile.toString());
+
+            NaiveBayesClassifier mapped = NaiveBayesClassifier.fromFile(binaryFile);
+            assertSameLabels(variants[v] + " bin", trained, mapped);
+            assertSameLabels(variants[v] + " json", trained, NaiveBayesClassifier.fromFile(jsonFile));
+            assertSamePosteriors(variants[v] + " json", mapped, NaiveBayesClassifier.fromFile(jsonFile));
+        }
+    }
+
+    @Test
+    public void legacyJsonFileLabelsAsTrainedModel() throws IOException {
+        interview.test.NaiveBayesClassifier trained = new interview.test.NaiveBayesClassifier(Features.UNIGRAMS, 1);
+        trained.fit(TRAIN_CSV);
+        Path jsonFile = folder.newFile("params.json").toPath();
+        Path binaryFile = folder.newFile("params.bin").toPath();
+        trained.writeParams(jsonFile.toString());
+        trained.writeBinaryParams(binaryFile.toString());
+        Path legacyFile = folder.newFile("legacy.json").toPath();
+        Files.writeString(legacyFile, legacyJson(Files.readString(jsonFile, StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+
+        assertSameLabels("legacy json", trained, NaiveBayesClassifier.fromFile(legacyFile));
+        assertSamePosteriors("legacy json", NaiveBayesClassifier.fromFile(binaryFile), NaiveBayesClassifier.fromFile(legacyFile));
+    }
+
+    /**
+     * Asserts that the served classifier labels and explains the test sentences as the
+     * trained one labels them.
+     */
+    private static void assertSameLabels(String variant, interview.test.NaiveBayesClassifier trained,
+                                         NaiveBayesClassifier served) {
+        for (String sentence: testSentences) {
+            String label = trained.classify(sentence);
+            assertEquals(variant + ": " + sentence, label, served.classify(sentence));
+            assertEquals(variant + ": " + sentence, label, served.explain(sentence, 3, null).label());
+        }
+    }
+
+    /**
+     * Asserts that the served classifier gives the test sentences and a sentence of
+     * unknown words the posterior probabilities of the expected one, label by label.
+     */
+    private static void assertSamePosteriors(String variant, NaiveBayesClassifier expected, NaiveBayesClassifier served) {
+        List<String> sentences = new ArrayList<>(testSentences);
+        sentences.add("Xyzzy plugh frobnicate zorkmid grue quux");
+        for (String sentence: sentences) {
+            Explanation expectedExplanation = expected.explain(sentence, 3, null);
+            Explanation explanation = served.explain(sentence, 3, null);
+            List<String> labels = Arrays.asList(explanation.labels());
+            for (int i = 0; i < expectedExplanation.labels().length; i++) {
+                int label = labels.indexOf(expectedExplanation.labels()[i]);
+                assertEquals(variant + ": " + sentence, expectedExplanation.posteriors()[i], explanation.posteriors()[label], 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Returns the json model file in the format written before the labels, the
+     * features and the smoothing were stored: the frequencies of the positive,
+     * neutral and negative labels in separate attributes and the priors and the
+     * likelihoods in that order.
+     */
+    private static String legacyJson(String json) {
+        JSONObject model = new JSONObject(json);
+        JSONArray labels = model.getJSONArray("labels");
+        int[] order = new int[3];
+        String[] legacyLabels = {"positive", "neutral", "negative"};
+        for (int i = 0; i < order.length; i++) {
+            order[i] = labels.toList().indexOf(legacyLabels[i]);
+        }
+        JSONObject legacy = new JSONObject();
+        legacy.put("priors", reordered(model.getJSONArray("priors"), order));
+        JSONArray frequencies = model.getJSONArray("labelFrequencies");
+        legacy.put("positiveLabelFrequency", frequencies.getDouble(order[0]));
+        legacy.put("neutralLabelFrequency", frequencies.getDouble(order[1]));
+        legacy.put("negativeLabelFrequency", frequencies.getDouble(order[2]));
+        JSONObject likelihoods = model.getJSONObject("wordsLikelihoods");
+        JSONObject legacyLikelihoods = new JSONObject();
+        for (Iterator<String> words = likelihoods.keys(); words.hasNext(); ) {
+            String word = words.next();
+            legacyLikelihoods.put(word, reordered(likelihoods.getJSONArray(word), order));
+        }
+        legacy.put("wordsLikelihoods", legacyLikelihoods);
+        return legacy.toString();
+    }
+
+    /**
+     * Returns the values in the given order.
+     */
+    private static JSONArray reordered(JSONArray values, int[] order) {
+        JSONArray reordered = new JSONArray();
+        for (int index: order) reordered.put(values.getDouble(index));
+        return reordered;
+    }
+}
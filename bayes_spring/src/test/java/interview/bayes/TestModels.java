@@ -0,0 +1,51 @@
+package interview.bayes;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * <h1>Test Models</h1>
+ * The TestModels program writes the small model files of the tests.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+final class TestModels {
+
+    /**
+     * The label of the word "good", with a quote.
+     */
+    static final String GOOD_LABEL = "say \"hi\"";
+    /**
+     * The label of the word "bad", with a backslash and a line break.
+     */
+    static final String BAD_LABEL = "back\\slash\nnext line";
+
+    private TestModels() {
+    }
+
+    /**
+     * Writes a json model file of two labels that have to be quoted in json, the
+     * word "good" marking the first one and the word "bad" the second one.
+     *
+     * @param directory the directory of the model file
+     * @return the path of the model file
+     */
+    static Path quotedLabelsModel(Path directory) throws IOException {
+        JSONObject model = new JSONObject();
+        model.put("labels", new JSONArray().put(GOOD_LABEL).put(BAD_LABEL));
+        model.put("priors", new JSONArray().put(0.5).put(0.5));
+        model.put("labelFrequencies", new JSONArray().put(10.0).put(10.0));
+        model.put("wordsLikelihoods", new JSONObject()
+                .put("good", new JSONArray().put(0.9).put(0.1))
+                .put("bad", new JSONArray().put(0.1).put(0.9)));
+        Path modelFile = directory.resolve("quoted.json");
+        Files.writeString(modelFile, model.toString(), StandardCharsets.UTF_8);
+        return modelFile;
+    }
+}
@@ -4,7 +4,22 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * <h1>CSVReader</h1>
@@ -17,6 +32,16 @@ import java.util.ArrayList;
 
 public class CSVReader {
 
+    /**
+     * Number of rows handed to a processing thread at once.
+     */
+    private static final int CHUNK_ROWS = 4096;
+    /**
+     * Milliseconds waited for a free place in the queue before the processing threads
+     * are checked for failures again.
+     */
+    private static final long WORKER_CHECK_MILLIS = 100;
+
     /**
      * Returns arraylist of sentences in the given CSV file.
      *
@@ -37,4 +62,210 @@ public class CSVReader {
         }
         return loadedCSVData;
     }
+
+    /**
+     * Passes the rows of the given CSV file following its header row to the consumer
+     * one at a time, without holding the file in memory.
+     *
+     * @param pathCSV path to the CSV file
+     * @param rowConsumer the consumer of the rows
+     */
+    public static void forEachRow(String pathCSV, Consumer<String> rowConsumer) throws IOException {
+        try (BufferedReader csvReader = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(Paths.get(pathCSV)), StandardCharsets.UTF_8), 1 << 16)) {
+            String row = csvReader.readLine();
+            while (row != null && (row = csvReader.readLine()) != null) {
+                rowConsumer.accept(row);
+            }
+        }
+    }
+
+    /**
+     * Processes the rows of the given CSV file following its header row by the given
+     * number of threads and returns their states in the order of the threads. The
+     * rows are read in chunks by the calling thread, every thread creates its own
+     * state and passes it the chunks it takes, so the states need no synchronization
+     * and are combined by the caller. The chunks come with the number of their first
+     * row, which lets the caller restore the order of the rows. When the consumer
+     * throws, the reading stops and the failure is thrown wrapped in an IOException.
+     *
+     * @param pathCSV path to the CSV file
+     * @param threads number of processing threads
+     * @param states the supplier of the state of a thread
+     * @param chunkConsumer the consumer of the chunks of rows
+     * @param <T> the type of the state of a thread
+     * @return the states of the threads
+     */
+    public static <T> List<T> forEachChunk(String pathCSV, int threads, Supplier<T> states,
+                                           ChunkConsumer<T> chunkConsumer) throws IOException {
+        BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(threads * 2);
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(workers.submit(() -> {
+                    T state = states.get();
+                    for (Chunk chunk = chunks.take(); !chunk.rows.isEmpty(); chunk = chunks.take()) {
+                        chunkConsumer.accept(state, chunk.firstRow, chunk.rows);
+                    }
+                    return state;
+                }));
+            }
+            RowChunker chunker = new RowChunker(chunks, futures);
+            forEachRow(pathCSV, chunker);
+            chunker.flush();
+            for (int i = 0; i < threads; i++) {
+                chunker.put(new Chunk(0, Collections.emptyList()));
+            }
+            List<T> results = new ArrayList<>();
+            for (Future<T> future: futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Processing of " + pathCSV + " was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Processing of " + pathCSV + " failed", e.getCause());
+        } catch (WorkerFailure e) {
+            throw new IOException("Processing of " + pathCSV + " failed", e.getCause().getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * Receives the chunks of rows of a processing thread.
+     *
+     * @param <T> the type of the state of the thread
+     */
+    public interface ChunkConsumer<T> {
+
+        /**
+         * Called for every chunk of consecutive rows taken by the thread.
+         *
+         * @param state the state of the thread
+         * @param firstRow the number of the first row of the chunk, from 0
+         * @param rows the rows
+         */
+        void accept(T state, long firstRow, List<String> rows);
+    }
+
+    /**
+     * Collects the rows of the CSV file into chunks and puts them into the queue
+     * of the processing threads, failing as soon as a processing thread has failed
+     * rather than waiting for a place in the queue no thread frees anymore.
+     */
+    private static final class RowChunker implements Consumer<String> {
+
+        /**
+         * The queue of the processing threads.
+         */
+        private final BlockingQueue<Chunk> chunks;
+        /**
+         * The results of the processing threads.
+         */
+        private final List<? extends Future<?>> workers;
+        /**
+         * The chunk being collected.
+         */
+        private List<String> chunk = new ArrayList<>(CHUNK_ROWS);
+        /**
+         * Number of the rows in the chunks put into the queue.
+         */
+        private long rows;
+
+        /**
+         * Class constructor.
+         *
+         * @param chunks the queue of the processing threads
+         * @param workers the results of the processing threads
+         */
+        RowChunker(BlockingQueue<Chunk> chunks, List<? extends Future<?>> workers){
+            this.chunks = chunks;
+            this.workers = workers;
+        }
+
+        @Override
+        public void accept(String row){
+            chunk.add(row);
+            if (chunk.size() == CHUNK_ROWS) {
+                try {
+                    flush();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Reading of the rows was interrupted", e);
+                } catch (ExecutionException e) {
+                    throw new WorkerFailure(e);
+                }
+            }
+        }
+
+        /**
+         * Puts the collected rows into the queue.
+         */
+        void flush() throws InterruptedException, ExecutionException {
+            if (!chunk.isEmpty()) {
+                put(new Chunk(rows, chunk));
+                rows += chunk.size();
+                chunk = new ArrayList<>(CHUNK_ROWS);
+            }
+        }
+
+        /**
+         * Puts a chunk into the queue, waiting for a free place, and throws the failure
+         * of a processing thread that has failed.
+         *
+         * @param rows the chunk of rows
+         */
+        void put(Chunk rows) throws InterruptedException, ExecutionException {
+            do {
+                for (Future<?> worker: workers) {
+                    // a thread only returns after its last chunk, which is put after all the rows
+                    if (worker.isDone()) worker.get();
+                }
+            } while (!chunks.offer(rows, WORKER_CHECK_MILLIS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * The failure of a processing thread thrown out of the reading of the rows.
+     */
+    private static final class WorkerFailure extends RuntimeException {
+
+        /**
+         * Class constructor.
+         *
+         * @param cause the failure of the processing thread
+         */
+        WorkerFailure(ExecutionException cause){
+            super(cause);
+        }
+    }
+
+    /**
+     * Consecutive rows of the CSV file with the number of the first of them.
+     */
+    private static final class Chunk {
+
+        /**
+         * The number of the first row.
+         */
+        final long firstRow;
+        /**
+         * The rows, empty for the last chunk of a processing thread.
+         */
+        final List<String> rows;
+
+        /**
+         * Class constructor.
+         *
+         * @param firstRow the number of the first row
+         * @param rows the rows
+         */
+        Chunk(long firstRow, List<String> rows){
+            this.firstRow = firstRow;
+            this.rows = rows;
+        }
+    }
 }
@@ -0,0 +1,169 @@
+package interview.test;
+
+import interview.core.Features;
+
+/**
+ * <h1>Cross Validation</h1>
+ * The CrossValidation program holds the results of the k-fold cross-validation of
+ * the classifier for every tried alpha: the evaluations of the models of the folds,
+ * their accuracy over all the folds and its standard deviation among the folds.
+ * The best alpha is the one of the highest accuracy, the first of them on a tie.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+public class CrossValidation {
+
+    /**
+     * The counted features of the words.
+     */
+    private final Features features;
+    /**
+     * The tried counts added to every feature in every label.
+     */
+    private final double[] alphas;
+    /**
+     * The evaluations of the models of the folds: [fold][alpha].
+     */
+    private final Evaluation[][] evaluations;
+    /**
+     * Nanoseconds the cross-validation took.
+     */
+    private final long nanos;
+
+    /**
+     * Class constructor.
+     *
+     * @param features the counted features of the words
+     * @param alphas the tried alphas
+     * @param evaluations the evaluations of the models of the folds: [fold][alpha]
+     * @param nanos the nanoseconds the cross-validation took
+     */
+    CrossValidation(Features features, double[] alphas, Evaluation[][] evaluations, long nanos){
+        this.features = features;
+        this.alphas = alphas.clone();
+        this.evaluations = evaluations;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the tried alphas.
+     *
+     * @return the alphas
+     */
+    public double[] alphas(){
+        return alphas.clone();
+    }
+
+    /**
+     * Returns the number of folds.
+     *
+     * @return the number of folds
+     */
+    public int folds(){
+        return evaluations.length;
+    }
+
+    /**
+     * Returns the evaluation of the model of the fold smoothed by the alpha.
+     *
+     * @param alpha the index of the alpha
+     * @param fold the fold
+     * @return the evaluation on the rows of the fold
+     */
+    public Evaluation evaluation(int alpha, int fold){
+        return evaluations[fold][alpha];
+    }
+
+    /**
+     * Returns the evaluation of the models of all the folds smoothed by the alpha.
+     *
+     * @param alpha the index of the alpha
+     * @return the evaluation on all the rows
+     */
+    public Evaluation evaluation(int alpha){
+        Evaluation evaluation = new Evaluation(evaluations[0][alpha].labels());
+        for (Evaluation[] foldEvaluations: evaluations) {
+            evaluation.merge(foldEvaluations[alpha]);
+        }
+        return evaluation;
+    }
+
+    /**
+     * Returns the fraction of all the rows labeled with their expected label by the
+     * models of their folds smoothed by the alpha.
+     *
+     * @param alpha the index of the alpha
+     * @return the accuracy
+     */
+    public double accuracy(int alpha){
+        return evaluation(alpha).accuracy();
+    }
+
+    /**
+     * Returns the standard deviation of the accuracies of the folds smoothed by the alpha.
+     *
+     * @param alpha the index of the alpha
+     * @return the standard deviation
+     */
+    public double accuracyDeviation(int alpha){
+        double mean = 0;
+        for (Evaluation[] foldEvaluations: evaluations) {
+            mean += foldEvaluations[alpha].accuracy() / evaluations.length;
+        }
+        double variance = 0;
+        for (Evaluation[] foldEvaluations: evaluations) {
+            double deviation = foldEvaluations[alpha].accuracy() - mean;
+            variance += deviation * deviation / evaluations.length;
+        }
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * Returns the index of the alpha of the highest accuracy.
+     *
+     * @return the index of the best alpha
+     */
+    public int best(){
+        int best = 0;
+        for (int alpha = 1; alpha < alphas.length; alpha++) {
+            if (accuracy(alpha) > accuracy(best)) best = alpha;
+        }
+        return best;
+    }
+
+    /**
+     * Returns the alpha of the highest accuracy.
+     *
+     * @return the best alpha
+     */
+    public double bestAlpha(){
+        return alphas[best()];
+    }
+
+    /**
+     * Returns the report of the cross-validation: the accuracy, its deviation among
+     * the folds and the mean F1 score of the labels of every alpha, and the best alpha.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString(){
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Cross-validation of %s in %d folds of %d sentences took %.0f ms%n",
+                features, folds(), evaluation(0).sentences(), nanos / 1e6));
+        report.append(String.format("%10s%10s%10s%10s%n", "alpha", "accuracy", "deviation", "mean f1"));
+        for (int alpha = 0; alpha < alphas.length; alpha++) {
+            Evaluation evaluation = evaluation(alpha);
+            double f1 = 0;
+            for (int label = 0; label < evaluation.labels().length; label++) {
+                f1 += evaluation.f1(label) / evaluation.labels().length;
+            }
+            report.append(String.format("%10s%10.4f%10.4f%10.4f%n",
+                    alphas[alpha], evaluation.accuracy(), accuracyDeviation(alpha), f1));
+        }
+        report.append(String.format("Best alpha %s with accuracy %.4f%n", bestAlpha(), accuracy(best())));
+        return report.toString();
+    }
+}
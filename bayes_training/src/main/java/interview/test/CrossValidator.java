@@ -0,0 +1,89 @@
+package interview.test;
+
+import interview.core.CompiledModel;
+import interview.core.Features;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <h1>Cross Validator</h1>
+ * The CrossValidator program contains methods for the k-fold cross-validation of the
+ * Bayes classifier over a sweep of the smoothing alpha. The rows of the data are
+ * dealt to the folds in turn and the word counts of every fold are counted once. The
+ * model of a fold is trained on the counts of all the data without the counts of
+ * the fold, so no fold is counted again, and the models of every alpha are trained
+ * from the same counts. All the models are then evaluated in one streamed pass over
+ * the data, every row preprocessed once and scored by all the models of its fold.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+public class CrossValidator {
+
+    /**
+     * Returns the cross-validation of the classifier of the given features on the
+     * labeled sentences of the CSV file at pathCSV for every alpha. The counting,
+     * the training of the models of the folds and their evaluation run on the given
+     * number of threads, the training on a pool of its own with a fold per task
+     * rather than on the common pool. The results are the same for any number of
+     * threads.
+     *
+     * @param pathCSV path to the CSV file
+     * @param features the counted features of the words
+     * @param folds number of folds, at least 2
+     * @param alphas the counts added to every feature in every label
+     * @param threads number of threads
+     * @return the cross-validation of the alphas
+     */
+    public static CrossValidation crossValidate(String pathCSV, Features features, int folds, double[] alphas,
+                                                int threads) throws IOException {
+        if (folds < 2) {
+            throw new IllegalArgumentException("Unsupported number of folds " + folds);
+        }
+        if (alphas.length == 0) {
+            throw new IllegalArgumentException("No alpha to cross-validate");
+        }
+        long start = System.nanoTime();
+        WordCounts[] foldCounts = WordCounts.countFolds(pathCSV, folds, threads, features);
+        WordCounts allCounts = new WordCounts(features);
+        for (WordCounts counts: foldCounts) {
+            allCounts.merge(counts);
+        }
+        CompiledModel[][] models = new CompiledModel[folds][alphas.length];
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(threads, folds));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int fold = 0; fold < folds; fold++) {
+                WordCounts heldOut = foldCounts[fold];
+                CompiledModel[] foldModels = models[fold];
+                futures.add(workers.submit(() -> {
+                    WordCounts trainCounts = allCounts.without(heldOut);
+                    for (int i = 0; i < alphas.length; i++) {
+                        NaiveBayesClassifier model = new NaiveBayesClassifier(features, alphas[i]);
+                        model.fit(trainCounts);
+                        foldModels[i] = model.compiledModel();
+                    }
+                }));
+            }
+            for (Future<?> future: futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Training of the folds of " + pathCSV + " was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Training of the folds of " + pathCSV + " failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        Evaluation[][] evaluations = Evaluator.evaluateFolds(pathCSV, models, threads);
+        return new CrossValidation(features, alphas, evaluations, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,282 @@
+package interview.test;
+
+import interview.core.TermIndex;
+
+import java.util.Arrays;
+
+/**
+ * <h1>Evaluation</h1>
+ * The Evaluation program holds the results of evaluating the classifier on labeled
+ * sentences: the confusion matrix of the expected and the determined labels, the
+ * accuracy, the precision, recall and F1 score of every label and the throughput.
+ * The expected labels are the labels of the model followed by the labels of the
+ * data the model does not know, which are never determined. A precision or recall
+ * without any sentence to divide by is 0. Evaluations of separate parts of the data
+ * can be merged.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+public class Evaluation {
+
+    /**
+     * The labels of the model, the determined labels.
+     */
+    private final String[] labels;
+    /**
+     * The index of the expected labels, starting with the labels of the model.
+     */
+    private final TermIndex expectedLabels;
+    /**
+     * The confusion matrix, row-major by expected label: [expected * labels.length + determined].
+     */
+    private long[] counts;
+    /**
+     * Nanoseconds the evaluation took.
+     */
+    private long nanos;
+
+    /**
+     * Class constructor.
+     *
+     * @param labels the labels of the model
+     */
+    public Evaluation(String[] labels){
+        this.labels = labels;
+        this.expectedLabels = new TermIndex(labels.length + 4);
+        for (String label: labels) {
+            expectedLabels.add(label);
+        }
+        this.counts = new long[(labels.length + 4) * labels.length];
+    }
+
+    /**
+     * Adds a sentence of the expected label labeled with the determined one.
+     *
+     * @param expected the expected label
+     * @param determined the index of the determined label of the model
+     */
+    public void add(String expected, int determined){
+        add(expected.toCharArray(), expected.length(), determined);
+    }
+
+    /**
+     * Adds a sentence of the expected label in the buffer labeled with the determined one.
+     *
+     * @param expected the buffer holding the expected label
+     * @param length the length of the expected label
+     * @param determined the index of the determined label of the model
+     */
+    void add(char[] expected, int length, int determined){
+        counts[expectedRow(expected, length) * labels.length + determined]++;
+    }
+
+    /**
+     * Adds the sentences of the other evaluation of the same model to this one.
+     *
+     * @param other the merged evaluation
+     */
+    public void merge(Evaluation other){
+        for (int otherRow = 0; otherRow < other.expectedLabels.size(); otherRow++) {
+            String expected = other.expectedLabels.term(otherRow);
+            int row = expectedRow(expected.toCharArray(), expected.length());
+            for (int determined = 0; determined < labels.length; determined++) {
+                counts[row * labels.length + determined] += other.counts[otherRow * labels.length + determined];
+            }
+        }
+    }
+
+    /**
+     * Sets the nanoseconds the evaluation took.
+     *
+     * @param nanos the nanoseconds
+     */
+    public void setNanos(long nanos){
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the labels of the model.
+     *
+     * @return the determined labels
+     */
+    public String[] labels(){
+        return labels.clone();
+    }
+
+    /**
+     * Returns the expected labels, the labels of the model first.
+     *
+     * @return the expected labels
+     */
+    public String[] expectedLabels(){
+        String[] expected = new String[expectedLabels.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = expectedLabels.term(i);
+        }
+        return expected;
+    }
+
+    /**
+     * Returns the number of sentences of the expected label labeled with the determined one.
+     *
+     * @param expected the index of the expected label
+     * @param determined the index of the determined label
+     * @return the number of sentences
+     */
+    public long count(int expected, int determined){
+        return counts[expected * labels.length + determined];
+    }
+
+    /**
+     * Returns the number of evaluated sentences.
+     *
+     * @return the number of sentences
+     */
+    public long sentences(){
+        long sentences = 0;
+        for (int i = 0; i < expectedLabels.size() * labels.length; i++) {
+            sentences += counts[i];
+        }
+        return sentences;
+    }
+
+    /**
+     * Returns the fraction of the sentences labeled with their expected label.
+     *
+     * @return the accuracy
+     */
+    public double accuracy(){
+        long hit = 0;
+        for (int i = 0; i < labels.length; i++) {
+            hit += count(i, i);
+        }
+        return divide(hit, sentences());
+    }
+
+    /**
+     * Returns the fraction of the sentences labeled with the label that are expected
+     * to have it.
+     *
+     * @param label the index of the label
+     * @return the precision of the label
+     */
+    public double precision(int label){
+        if (label >= labels.length) return 0;
+        long determined = 0;
+        for (int expected = 0; expected < expectedLabels.size(); expected++) {
+            determined += count(expected, label);
+        }
+        return divide(count(label, label), determined);
+    }
+
+    /**
+     * Returns the fraction of the sentences expected to have the label that are
+     * labeled with it.
+     *
+     * @param label the index of the expected label
+     * @return the recall of the label
+     */
+    public double recall(int label){
+        return label >= labels.length ? 0 : divide(count(label, label), support(label));
+    }
+
+    /**
+     * Returns the harmonic mean of the precision and the recall of the label.
+     *
+     * @param label the index of the expected label
+     * @return the F1 score of the label
+     */
+    public double f1(int label){
+        double precision = precision(label);
+        double recall = recall(label);
+        return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+    }
+
+    /**
+     * Returns the number of sentences expected to have the label.
+     *
+     * @param label the index of the expected label
+     * @return the number of sentences
+     */
+    public long support(int label){
+        long support = 0;
+        for (int determined = 0; determined < labels.length; determined++) {
+            support += count(label, determined);
+        }
+        return support;
+    }
+
+    /**
+     * Returns the number of sentences evaluated per second.
+     *
+     * @return the throughput
+     */
+    public double sentencesPerSecond(){
+        return nanos == 0 ? 0 : sentences() * 1e9 / nanos;
+    }
+
+    /**
+     * Returns the report of the evaluation: the accuracy and the throughput, the
+     * confusion matrix with the expected labels in rows and the metrics of every label.
+     *
+     * @return the report
+     */
+    @Override
+    public String toString(){
+        String[] expected = expectedLabels();
+        int width = 10;
+        for (String label: expected) {
+            width = Math.max(width, label.length() + 2);
+        }
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("Accuracy %.4f of %d sentences, %.0f sentences/s%n",
+                accuracy(), sentences(), sentencesPerSecond()));
+        report.append(String.format("%-" + width + "s", "expected"));
+        for (String label: labels) {
+            report.append(String.format("%" + width + "s", label));
+        }
+        report.append(System.lineSeparator());
+        for (int row = 0; row < expected.length; row++) {
+            report.append(String.format("%-" + width + "s", expected[row]));
+            for (int determined = 0; determined < labels.length; determined++) {
+                report.append(String.format("%" + width + "d", count(row, determined)));
+            }
+            report.append(System.lineSeparator());
+        }
+        report.append(String.format("%-" + width + "s%10s%10s%10s%10s%n", "label", "precision", "recall", "f1", "support"));
+        for (int row = 0; row < expected.length; row++) {
+            report.append(String.format("%-" + width + "s%10.4f%10.4f%10.4f%10d%n",
+                    expected[row], precision(row), recall(row), f1(row), support(row)));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Returns the row of the expected label in the buffer, adding the label with
+     * a new row when it is new.
+     *
+     * @param expected the buffer holding the expected label
+     * @param length the length of the expected label
+     * @return the row of the label
+     */
+    private int expectedRow(char[] expected, int length){
+        int row = expectedLabels.add(expected, length);
+        if ((row + 1) * labels.length > counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length * 2, (row + 1) * labels.length));
+        }
+        return row;
+    }
+
+    /**
+     * Returns the quotient, 0 when dividing by 0.
+     *
+     * @param dividend the dividend
+     * @param divisor the divisor
+     * @return the quotient
+     */
+    private static double divide(long dividend, long divisor){
+        return divisor == 0 ? 0 : (double) dividend / divisor;
+    }
+}
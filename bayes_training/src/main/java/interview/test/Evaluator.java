@@ -1,11 +1,23 @@
 package interview.test;
 
+import interview.core.CompiledModel;
+import interview.core.Preprocessor;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+
+import static interview.core.Preprocessor.preprocess;
+import static interview.test.CSVReader.forEachChunk;
+import static interview.test.CSVReader.forEachRow;
 
 /**
  * <h1>Evaluator</h1>
- * The Evaluator program contains methods for evaluating the Bayes classifier,
- * classifying the sentences and saving the model parameters.
+ * The Evaluator program contains methods for evaluating the Bayes classifier on
+ * labeled sentences. Every sentence is preprocessed once and its words are scored
+ * straight away. The words are scored as the sentence joined from them by spaces
+ * always was, which drops the empty words between the words, see JoinedWords.
+ * Sentences with an empty label are not evaluated, same as they are not trained on.
  *
  * @author  Tomas Majer
  * @version 1.0
@@ -16,54 +28,237 @@ public class Evaluator {
     /**
      * Returns the accuracy of the given model on the testSentences set.
      *
-     * @param testSentences the set of testing sentences
+     * @param testSentences the set of testing sentences, preprocessed words with the label first
      * @param model the tested classifier
      * @return the accuracy of the model
      */
     public static double evaluate(ArrayList<String[]> testSentences, NaiveBayesClassifier model) {
-        int hit = 0;
-        ArrayList<String[]> testResults = classifySentences(testSentences, model);
-        for (String[] result: testResults) {
-            if (result[0].equals(result[1])) hit++;
-        }
-        return (double) hit / (double) testResults.size();
+        return evaluation(testSentences, model).accuracy();
     }
 
     /**
-     * Returns the resulting labels of the sentences in the testSentences set in arraylist
-     * containing String pairs [expected results, given results].
+     * Returns the evaluation of the given model on the testSentences set.
      *
-     * @param testSentences the set of testing sentences
+     * @param testSentences the set of testing sentences, preprocessed words with the label first
      * @param model the tested classifier
-     * @return the results of the classification
+     * @return the evaluation of the model
      */
-    private static ArrayList<String[]> classifySentences(ArrayList<String[]> testSentences, NaiveBayesClassifier model) {
-        ArrayList<String[]> testingPairs = prepareSentences(testSentences);
-        ArrayList<String[]> testingResults = new ArrayList<>();
+    public static Evaluation evaluation(List<String[]> testSentences, NaiveBayesClassifier model) {
+        long start = System.nanoTime();
+        CompiledModel compiledModel = model.compiledModel();
+        Evaluation evaluation = new Evaluation(compiledModel.labels());
+        JoinedWords words = new JoinedWords(compiledModel.scorer());
+        char[] buffer = new char[16];
+        for (String[] testSentence: testSentences) {
+            if (testSentence.length == 0 || testSentence[0].isEmpty()) continue;
+            for (int i = 1; i < testSentence.length; i++) {
+                int length = testSentence[i].length();
+                if (length > buffer.length) buffer = new char[Math.max(buffer.length * 2, length)];
+                testSentence[i].getChars(0, length, buffer, 0);
+                words.visit(buffer, length);
+            }
+            evaluation.add(testSentence[0], words.finish());
+        }
+        evaluation.setNanos(System.nanoTime() - start);
+        return evaluation;
+    }
 
-        for (String[] pair: testingPairs) {
-            testingResults.add(new String[]{pair[0], model.classify(pair[1])});
+    /**
+     * Returns the evaluation of the given model on the labeled sentences of the CSV
+     * file at pathCSV, the header row is skipped. The file is streamed in chunks to
+     * the given number of threads, each scoring into its own evaluation, which are
+     * merged at the end, see CSVReader.forEachChunk. The evaluation is the same for
+     * any number of threads.
+     *
+     * @param pathCSV path to the CSV file
+     * @param model the tested classifier
+     * @param threads number of evaluating threads
+     * @return the evaluation of the model
+     */
+    public static Evaluation evaluate(String pathCSV, NaiveBayesClassifier model, int threads) throws IOException {
+        long start = System.nanoTime();
+        CompiledModel compiledModel = model.compiledModel();
+        Evaluation evaluation = new Evaluation(compiledModel.labels());
+        CompiledModel[][] models = {{compiledModel}};
+        if (threads <= 1) {
+            RowEvaluator rowEvaluator = new RowEvaluator(models);
+            forEachRow(pathCSV, row -> rowEvaluator.evaluate(row, 0));
+            evaluation.merge(rowEvaluator.evaluations[0][0]);
+        } else {
+            List<RowEvaluator> shards = forEachChunk(pathCSV, threads, () -> new RowEvaluator(models),
+                    (shard, firstRow, rows) -> {
+                        for (String row: rows) {
+                            shard.evaluate(row, 0);
+                        }
+                    });
+            for (RowEvaluator shard: shards) {
+                evaluation.merge(shard.evaluations[0][0]);
+            }
         }
-        return testingResults;
+        evaluation.setNanos(System.nanoTime() - start);
+        return evaluation;
     }
 
     /**
-     * Builds the sentences to form acceptable input for interview.test.NaiveBayesClassifier.classify.
+     * Returns the evaluations of the models of the folds on the labeled sentences of
+     * the CSV file at pathCSV, the header row is skipped. The row number modulo the
+     * number of folds is the fold of the row, as by WordCounts.countFolds, and every
+     * row is scored by all the models of its fold, which are expected to be trained
+     * without the rows of the fold. A row is preprocessed once for all the models.
+     * The file is streamed in chunks to the given number of threads as by evaluate.
      *
-     * @param testSentences the set of testing sentences
-     * @return the set of modified testing sentences
+     * @param pathCSV path to the CSV file
+     * @param models the tested models of every fold: [fold][model]
+     * @param threads number of evaluating threads
+     * @return the evaluations of the models: [fold][model]
      */
-    private static ArrayList<String[]> prepareSentences(ArrayList<String[]> testSentences){
-        ArrayList<String[]> testingPairs = new ArrayList<>();
-        for (String[] testSentence: testSentences) {
-            String label = testSentence[0];
-            StringBuilder sentence = new StringBuilder();
-            for (int i = 1; i < testSentence.length; i++) {
-                sentence.append(testSentence[i]);
-                if (i != (testSentence.length - 1)) sentence.append(" ");
+    static Evaluation[][] evaluateFolds(String pathCSV, CompiledModel[][] models, int threads) throws IOException {
+        int folds = models.length;
+        List<RowEvaluator> shards = forEachChunk(pathCSV, Math.max(threads, 1), () -> new RowEvaluator(models),
+                (shard, firstRow, rows) -> {
+                    for (int i = 0; i < rows.size(); i++) {
+                        shard.evaluate(rows.get(i), (int) ((firstRow + i) % folds));
+                    }
+                });
+        Evaluation[][] evaluations = new Evaluation[folds][];
+        for (int fold = 0; fold < folds; fold++) {
+            evaluations[fold] = new Evaluation[models[fold].length];
+            for (int model = 0; model < models[fold].length; model++) {
+                evaluations[fold][model] = new Evaluation(models[fold][model].labels());
+                for (RowEvaluator shard: shards) {
+                    evaluations[fold][model].merge(shard.evaluations[fold][model]);
+                }
+            }
+        }
+        return evaluations;
+    }
+
+    /**
+     * Evaluates labeled rows of a CSV file one at a time by the models of the group
+     * of the row, the first word of a row is the expected label. A row is preprocessed
+     * once and scored by all the models of its group in a single pass.
+     */
+    private static final class RowEvaluator implements Preprocessor.WordVisitor {
+
+        /**
+         * The scorers of the words of the models: [group][model].
+         */
+        private final JoinedWords[][] words;
+        /**
+         * The evaluations of the models: [group][model].
+         */
+        final Evaluation[][] evaluations;
+        /**
+         * The scorers of the group of the row being evaluated.
+         */
+        private JoinedWords[] rowWords;
+        /**
+         * The expected label of the row being evaluated.
+         */
+        private char[] label = new char[16];
+        /**
+         * The length of the expected label, -1 before the label is visited.
+         */
+        private int labelLength;
+
+        /**
+         * Class constructor.
+         *
+         * @param models the tested models of the groups: [group][model]
+         */
+        RowEvaluator(CompiledModel[][] models){
+            this.words = new JoinedWords[models.length][];
+            this.evaluations = new Evaluation[models.length][];
+            for (int group = 0; group < models.length; group++) {
+                words[group] = new JoinedWords[models[group].length];
+                evaluations[group] = new Evaluation[models[group].length];
+                for (int model = 0; model < models[group].length; model++) {
+                    words[group][model] = new JoinedWords(models[group][model].scorer());
+                    evaluations[group][model] = new Evaluation(models[group][model].labels());
+                }
+            }
+        }
+
+        /**
+         * Evaluates the labeled row by the models of the group.
+         *
+         * @param row the row
+         * @param group the group of the row
+         */
+        void evaluate(String row, int group){
+            labelLength = -1;
+            rowWords = words[group];
+            preprocess(row, this);
+            for (int model = 0; model < rowWords.length; model++) {
+                int determined = rowWords[model].finish();
+                if (labelLength > 0) evaluations[group][model].add(label, labelLength, determined);
             }
-            testingPairs.add(new String[]{label, sentence.toString()});
         }
-        return testingPairs;
+
+        @Override
+        public void visit(char[] word, int length){
+            if (labelLength >= 0) {
+                for (JoinedWords modelWords: rowWords) {
+                    modelWords.visit(word, length);
+                }
+                return;
+            }
+            if (length > label.length) label = new char[length];
+            System.arraycopy(word, 0, label, 0, length);
+            labelLength = length;
+        }
+    }
+
+    /**
+     * Passes the words of a sentence to the scorer the way preprocessing the words
+     * joined by spaces would: the empty words between the words are dropped by the
+     * joining white-space, leading empty words are one empty word, and the sentence
+     * of no words or a single empty word is a single empty word.
+     */
+    private static final class JoinedWords implements Preprocessor.WordVisitor {
+
+        /**
+         * The scorer of the words.
+         */
+        private final CompiledModel.Scorer scorer;
+        /**
+         * Number of the visited words of the sentence.
+         */
+        private int words;
+        /**
+         * Whether a non-empty word of the sentence was visited.
+         */
+        private boolean nonEmpty;
+
+        /**
+         * Class constructor.
+         *
+         * @param scorer the scorer of the words
+         */
+        JoinedWords(CompiledModel.Scorer scorer){
+            this.scorer = scorer;
+        }
+
+        @Override
+        public void visit(char[] word, int length){
+            words++;
+            if (length == 0) return;
+            if (!nonEmpty && words > 1) scorer.visit(word, 0);
+            nonEmpty = true;
+            scorer.visit(word, length);
+        }
+
+        /**
+         * Returns the index of the most probable label of the sentence and starts
+         * the next sentence.
+         *
+         * @return the index of the determined label
+         */
+        int finish(){
+            if (!nonEmpty && words <= 1) scorer.visit(new char[0], 0);
+            words = 0;
+            nonEmpty = false;
+            return scorer.finish();
+        }
     }
 }
@@ -1,12 +1,13 @@
 package interview.test;
 
+import interview.core.Features;
+
 import java.io.*;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 
-import static interview.test.CSVReader.readCSV;
+import static interview.test.CrossValidator.crossValidate;
 import static interview.test.Evaluator.evaluate;
-import static interview.test.Preprocessor.preprocess;
 
 /**
  * <h1>Naive Bayes Classifier</h1>
@@ -18,13 +19,33 @@ import static interview.test.Preprocessor.preprocess;
 
 public class NaiveBayes {
 
+    /**
+     * The alphas cross-validated when "--alphas" is not given.
+     */
+    private static final String DEFAULT_ALPHAS = "0.05,0.1,0.25,0.5,0.75,1,1.5,2";
+
     /**
      * This is the main method which utilises the other classes in the package.
      * It reads the passed CSV documents, preprocesses the words in them,
      * trains and tests the Bayes Classifier while writing its parameters into
-     * a json file.
+     * a binary model file, and also into a json file when asked to. The test file
+     * is evaluated in parallel, "--report" prints the confusion matrix, the metrics
+     * of the labels and the throughput of the evaluation.
+     * With "--update" it loads the current binary model file instead and updates
+     * it with the passed CSV document of new labeled sentences. A new model counts
+     * the words alone, or also their n-grams up to "--ngrams", optionally hashed into
+     * 2^"--hash-bits" buckets, and is smoothed by "--alpha". With "--cross-validate"
+     * the training file is first cross-validated in the given number of folds for every
+     * alpha of "--alphas" and the new model is smoothed by the best of them.
      *
-     * @param args Unused.
+     * @param args "--json" to also write the json parameters file,
+     *             "--report" to print the report of the evaluation,
+     *             "--update new.csv" to update the current model with new.csv,
+     *             "--ngrams n" to also count the word n-grams up to n (2 or 3),
+     *             "--hash-bits b" to hash the features into 2^b buckets,
+     *             "--alpha a" to add a to the count of every feature in every label,
+     *             "--cross-validate k" to choose the alpha by k-fold cross-validation,
+     *             "--alphas a,b,..." the cross-validated alphas.
      * @return Nothing.
      */
 
@@ -32,21 +53,58 @@ public class NaiveBayes {
         String pathToTrain = "train.csv";
         String pathToTest = "test.csv";
         try {
-            ArrayList<String> trainSentences = readCSV(pathToTrain);
-            trainSentences.remove(0);
-            ArrayList<String> testSentences = readCSV(pathToTest);
-            testSentences.remove(0);
-
-            ArrayList<String[]> trainWords = preprocess(trainSentences);
-            NaiveBayesClassifier model = new NaiveBayesClassifier();
-            model.fit(trainWords);
-
-            ArrayList<String[]> testWords = preprocess(testSentences);
-            double accuracy = evaluate(testWords, model);
-            model.writeParams("params.json");
-            System.out.printf("Accuracy of the model is: %.4f%n", accuracy);
-        } catch (FileNotFoundException e) {
+            Features features = new Features(intOption(args, "--ngrams", 1), intOption(args, "--hash-bits", 0));
+            double alpha = Double.parseDouble(option(args, "--alpha", "1"));
+            int update = Arrays.asList(args).indexOf("--update");
+            int folds = intOption(args, "--cross-validate", 0);
+            if (folds > 0 && update < 0) {
+                double[] alphas = Arrays.stream(option(args, "--alphas", DEFAULT_ALPHAS).split(","))
+                        .mapToDouble(Double::parseDouble).toArray();
+                CrossValidation crossValidation = crossValidate(pathToTrain, features, folds, alphas,
+                        Runtime.getRuntime().availableProcessors());
+                System.out.print(crossValidation);
+                alpha = crossValidation.bestAlpha();
+            }
+            NaiveBayesClassifier model = new NaiveBayesClassifier(features, alpha);
+            if (update >= 0 && update + 1 < args.length) {
+                model.loadParams("params.bin");
+                model.partialFit(args[update + 1]);
+            } else {
+                model.fit(pathToTrain);
+            }
+
+            Evaluation evaluation = evaluate(pathToTest, model, Runtime.getRuntime().availableProcessors());
+            model.writeBinaryParams("params.bin");
+            if (Arrays.asList(args).contains("--json")) model.writeParams("params.json");
+            System.out.printf("Accuracy of the model is: %.4f%n", evaluation.accuracy());
+            if (Arrays.asList(args).contains("--report")) System.out.print(evaluation);
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Returns the value of the integer option of the arguments.
+     *
+     * @param args the arguments
+     * @param name the name of the option
+     * @param defaultValue the value when the option is missing
+     * @return the value of the option
+     */
+    private static int intOption(String[] args, String name, int defaultValue) {
+        return Integer.parseInt(option(args, name, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * Returns the value of the option of the arguments.
+     *
+     * @param args the arguments
+     * @param name the name of the option
+     * @param defaultValue the value when the option is missing
+     * @return the value of the option
+     */
+    private static String option(String[] args, String name, String defaultValue) {
+        int option = Arrays.asList(args).indexOf(name);
+        return option >= 0 && option + 1 < args.length ? args[option + 1] : defaultValue;
+    }
 }
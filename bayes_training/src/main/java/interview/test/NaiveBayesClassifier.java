@@ -1,20 +1,27 @@
 package interview.test;
 
+import interview.core.CompiledModel;
+import interview.core.Features;
+import interview.core.ModelFile;
+import interview.core.TermIndex;
+
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.DoubleBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
-
-import static interview.test.Preprocessor.preprocess;
+import java.util.Arrays;
 
 /**
  * <h1>Naive Bayes Classifier</h1>
  * The NaiveBayesClassifier program contains methods for training the classifier,
- * classifying the sentences and saving the model parameters.
+ * classifying the sentences and saving the model parameters. The classifier counts
+ * the features of the words given by Features, the words alone by default, and
+ * smooths the counts by adding alpha to the count of every feature in every label,
+ * one by default.
  *
  * @author  Tomas Majer
  * @version 1.0
@@ -23,45 +30,75 @@ import static interview.test.Preprocessor.preprocess;
 public class NaiveBayesClassifier {
 
     /**
-     * The map of unique words and their counts in [positive, neutral, negative] sentiment.
+     * The counted features of the words.
      */
-    private Map<String, int[]> wordsCounts;
+    private Features features;
     /**
-     * The map of unique words and their likelihoods in [positive, neutral, negative] sentiment.
+     * The count added to every feature in every label.
      */
-    private Map<String, double[]> wordsLikelihoods;
+    private double alpha;
     /**
-     * Total number of positively labeled words.
+     * The counts of the unique features in the labels.
      */
-    private double positiveLabelFrequency;
+    private WordCounts wordsCounts;
     /**
-     * Total number of neutraly labeled words.
+     * The likelihoods of the unique features in the labels, row-major by the ids
+     * or buckets of wordsCounts: [id * labelCount + label].
      */
-    private double neutralLabelFrequency;
+    private double[] wordsLikelihoods;
     /**
-     * Total number of negatively labeled words.
+     * Total numbers of features per label, including alpha occurrences of every feature.
      */
-    private double negativeLabelFrequency;
+    private double[] labelFrequencies;
     /**
-     * Prior probabilities for [positive, neutral, negative] sentiment.
+     * Prior probabilities of the labels.
      */
     private double[] priors;
+    /**
+     * The scoring form of the model built from the current parameters.
+     */
+    private CompiledModel compiledModel;
 
+    /**
+     * Class constructor of the classifier of the words alone.
+     */
+    public NaiveBayesClassifier (){
+        this(Features.UNIGRAMS);
+    }
+
+    /**
+     * Class constructor of the classifier smoothed by adding one.
+     *
+     * @param features the counted features of the words
+     */
+    public NaiveBayesClassifier (Features features){
+        this(features, 1);
+    }
 
     /**
      * Class constructor.
+     *
+     * @param features the counted features of the words
+     * @param alpha the count added to every feature in every label, greater than 0
      */
-    public NaiveBayesClassifier (){
-        this.wordsCounts = new HashMap<>();
-        this.wordsLikelihoods = new HashMap<>();
-        this.positiveLabelFrequency = 0;
-        this.neutralLabelFrequency = 0;
-        this.negativeLabelFrequency = 0;
-        this.priors = new double[3];
+    public NaiveBayesClassifier (Features features, double alpha){
+        if (!(alpha > 0) || Double.isInfinite(alpha)) {
+            throw new IllegalArgumentException("Unsupported smoothing alpha " + alpha);
+        }
+        this.features = features;
+        this.alpha = alpha;
+        this.wordsCounts = new WordCounts(features);
+        this.wordsLikelihoods = new double[0];
+        this.labelFrequencies = new double[0];
+        this.priors = new double[0];
+        compile();
     }
 
     /**
-     * Outputs a json file with the name filename containing current model attributes - parameters.
+     * Outputs a json file with the name filename containing current model attributes - parameters:
+     * the features, the smoothing alpha, the labels, their priors and frequencies, and the likelihoods of the words
+     * in the labels. The likelihoods of hashed features are written for the counted buckets,
+     * keyed by the number of the bucket.
      *
      * @param filename the name of the created file
      */
@@ -69,19 +106,27 @@ public class NaiveBayesClassifier {
         try {
             Writer myWriter = new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8);
             StringBuilder jsonB = new StringBuilder();
+            int labelCount = labelFrequencies.length;
             jsonB.append("{");
-            jsonB.append("\"priors\": [" + priors[0] + "," + priors[1] + "," + priors[2] + "],");
-            jsonB.append("\"positiveLabelFrequency\" : " + positiveLabelFrequency + ",");
-            jsonB.append("\"neutralLabelFrequency\" :" + neutralLabelFrequency + ",");
-            jsonB.append("\"negativeLabelFrequency\" :" + negativeLabelFrequency + ",");
+            jsonB.append("\"ngrams\": " + features.ngrams() + ",\"hashBits\": " + features.hashBits() + ",\"alpha\": " + alpha + ",");
+            jsonB.append("\"labels\": [");
+            for (int i = 0; i < labelCount; i++) {
+                jsonB.append(i > 0 ? "," : "").append("\"" + wordsCounts.label(i) + "\"");
+            }
+            jsonB.append("],");
+            jsonB.append("\"priors\": " + Arrays.toString(priors).replace(" ", "") + ",");
+            jsonB.append("\"labelFrequencies\" : " + Arrays.toString(labelFrequencies).replace(" ", "") + ",");
             jsonB.append("\"wordsLikelihoods\" : {");
             String delimiter = "";
-            for (Map.Entry<String, double[]> entry : wordsLikelihoods.entrySet()) {
+            for (int id = 0; id < wordsCounts.size(); id++) {
+                if (features.hashed() && !wordsCounts.isCounted(id)) continue;
                 jsonB.append(delimiter);
                 delimiter = ",";
-                double[] val = entry.getValue();
-                String arrayInString = "[" + val[0] + "," + val[1] + "," + val[2] + "]";
-                jsonB.append("\"" + entry.getKey() + "\" :" + arrayInString);
+                jsonB.append("\"" + (features.hashed() ? String.valueOf(id) : wordsCounts.term(id)) + "\" :[");
+                for (int i = 0; i < labelCount; i++) {
+                    jsonB.append(i > 0 ? "," : "").append(wordsLikelihoods[id * labelCount + i]);
+                }
+                jsonB.append("]");
             }
             jsonB.append("}}");
             String json = jsonB.toString();
@@ -93,6 +138,35 @@ public class NaiveBayesClassifier {
         }
     }
 
+    /**
+     * Outputs a binary model file with the name filename containing the compiled model,
+     * the word counts and the smoothing alpha, see ModelFile for its layout.
+     *
+     * @param filename the name of the created file
+     */
+    public void writeBinaryParams(String filename){
+        try {
+            ModelFile.write(compiledModel, wordsCounts, alpha, Paths.get(filename));
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the word counts of a binary model file written by writeBinaryParams
+     * and computes the model parameters from them, the model can then be updated
+     * by partialFit. The features and the alpha of the model file replace the current ones.
+     *
+     * @param filename the name of the model file
+     */
+    public void loadParams(String filename) throws IOException {
+        wordsCounts = ModelFile.readCounts(Paths.get(filename), WordCounts::new);
+        features = wordsCounts.features();
+        alpha = ModelFile.readAlpha(Paths.get(filename));
+        train();
+    }
+
     /**
      * Trains the model given the labeled data in the array list of String arrays.
      * First element of the array is required to be the label.
@@ -100,154 +174,192 @@ public class NaiveBayesClassifier {
      * @param fittedData preprocessed words to train the model on
      */
     public void fit(ArrayList<String[]> fittedData){
-        setWordCounts(fittedData);
-        handleNullCounts();
-        setWordsLikelihoods();
-        setPriors();
+        wordsCounts = new WordCounts(features);
+        partialFit(fittedData);
     }
 
     /**
-     * Classifies the given sentence and returns the most probable sentiment label.
+     * Updates the trained model with more labeled data in the array list of String
+     * arrays. The word counts of the data are added to the current ones and the model
+     * parameters are computed again from the counts, the result is the same as fitting
+     * all the data at once.
      *
-     * @param sentence the sentence to label
-     * @return the determined sentiment label
+     * @param fittedData preprocessed words to update the model with
      */
-    public String classify(String sentence) {
-        String[] words = preprocess(sentence);
-        double[] jointProbabilities = new double[3];
-        double[] defaultLikelihoods = new double[]{1.0 / positiveLabelFrequency, 1.0 / neutralLabelFrequency, 1.0 / negativeLabelFrequency};
-        for (String word: words) {
-            jointProbabilities = addLogs(jointProbabilities,wordsLikelihoods.getOrDefault(word, defaultLikelihoods));
+    public void partialFit(ArrayList<String[]> fittedData){
+        for (String[] words: fittedData) {
+            wordsCounts.add(words);
         }
-        jointProbabilities = addLogs(jointProbabilities, priors);
-        int maxIndex = arrayMax(jointProbabilities);
-        String classification;
-        switch (maxIndex) {
-            case 0:
-                classification = "positive";
-                break;
-            case 1:
-                classification = "neutral";
-                break;
-            case 2:
-                classification = "negative";
-                break;
-            default:
-                classification = "unknown";
-                break;
-        }
-        return classification;
+        train();
     }
 
     /**
-     * Given the training set of words, sets the attributes wordsCounts,
-     * positiveLabelFrequency, neutralLabelFrequency and negativeLabelFrequency
-     * of the model.
+     * Trains the model given the labeled sentences of the CSV file at pathCSV,
+     * the header row is skipped. The file is read and preprocessed one row at a time
+     * straight into the word counts, so the memory used grows with the vocabulary
+     * and not with the size of the file. The rows are counted on all available
+     * processors.
      *
-     * @param allWords the words to fit the model with
-     */
-    private void setWordCounts (ArrayList<String[]> allWords) {
-        for (String[] words: allWords) {
-            String sentiment = words[0];
-            int[] sentimentArray = new int[]{0, 0, 0};
-            if (sentiment.equals("positive")) {
-                sentimentArray[0] = 1;
-            } else if (sentiment.equals("neutral")) {
-                sentimentArray[1] = 1;
-            } else if (sentiment.equals("negative")) {
-                sentimentArray[2] = 1;
-            }
-            for (int i = 1; i < words.length; i++){
-                if (wordsCounts.containsKey(words[i]) && !(words[i].equals(""))) {
-                    int[] wordSentimentCount = wordsCounts.get(words[i]);
-                    int[] newCount = sumElements(wordSentimentCount, sentimentArray);
-                    wordsCounts.put(words[i], newCount);
-                }else if (!(words[i].equals(""))){
-                    wordsCounts.put(words[i], sentimentArray);
-                }
-            }
-            positiveLabelFrequency += (words.length - 1) * sentimentArray[0];
-            neutralLabelFrequency += (words.length - 1) * sentimentArray[1];
-            negativeLabelFrequency += (words.length - 1) * sentimentArray[2];
-        }
+     * @param pathCSV path to the CSV file
+     */
+    public void fit(String pathCSV) throws IOException {
+        fit(pathCSV, Runtime.getRuntime().availableProcessors());
     }
 
     /**
-     * Updates the wordsCounts Map to not contain any zero values, updates the label
-     * frequencies correspondingly.
+     * Trains the model given the labeled sentences of the CSV file at pathCSV
+     * counted by the given number of threads. The trained model is the same for
+     * any number of threads.
+     *
+     * @param pathCSV path to the CSV file
+     * @param threads number of counting threads
      */
-    private void handleNullCounts () {
-        for (Map.Entry<String, int[]> entry : wordsCounts.entrySet()) {
-            wordsCounts.put(entry.getKey(), sumElements(entry.getValue(), new int[]{1,1,1}));
-            positiveLabelFrequency += 1;
-            neutralLabelFrequency += 1;
-            negativeLabelFrequency += 1;
-        }
+    public void fit(String pathCSV, int threads) throws IOException {
+        wordsCounts = WordCounts.countCSV(pathCSV, threads, features);
+        train();
     }
 
     /**
-     * Sets the attribute wordsLikelihoods.
+     * Updates the trained model with the labeled sentences of the CSV file at pathCSV,
+     * the header row is skipped. Only the new file is read, its word counts are added
+     * to the current ones and the model parameters are computed again from the counts,
+     * the result is the same as fitting all the data at once.
+     *
+     * @param pathCSV path to the CSV file
      */
-    private void setWordsLikelihoods () {
-        for (Map.Entry<String, int[]> entry : wordsCounts.entrySet()) {
-            String word = entry.getKey();
-            int[] wordCounts = wordsCounts.get(word);
-            double positiveLikelihood =  (double) wordCounts[0] / positiveLabelFrequency;
-            double neutralLikelihood = (double) wordCounts[1] / neutralLabelFrequency;
-            double negativeLikelihood = (double) wordCounts[2] / negativeLabelFrequency;
-            wordsLikelihoods.put(word, new double[]{positiveLikelihood, neutralLikelihood, negativeLikelihood});
+    public void partialFit(String pathCSV) throws IOException {
+        wordsCounts.merge(WordCounts.countCSV(pathCSV, Runtime.getRuntime().availableProcessors(), features));
+        train();
+    }
+
+    /**
+     * Trains the model given the word counts of the labeled data, counted with the
+     * features of the model. The counts are kept by the model and updated by partialFit.
+     *
+     * @param wordCounts the word counts to train the model on
+     */
+    public void fit(WordCounts wordCounts){
+        if (!features.equals(wordCounts.features())) {
+            throw new IllegalArgumentException("Cannot fit the counts of " + wordCounts.features() + " to " + features);
         }
+        wordsCounts = wordCounts;
+        train();
     }
 
     /**
-     * Sets the attribute priors.
+     * Returns the counted features of the words.
+     *
+     * @return the features
      */
-    private void setPriors () {
-        double labelsFrequency = positiveLabelFrequency + neutralLabelFrequency + negativeLabelFrequency;
-        priors[0] = positiveLabelFrequency / labelsFrequency;
-        priors[1] = neutralLabelFrequency / labelsFrequency;
-        priors[2] = negativeLabelFrequency / labelsFrequency;
+    public Features features() {
+        return features;
     }
 
     /**
-     * Returns the element-wise sum of two integer arrays.
+     * Returns the count added to every feature in every label.
      *
-     * @param firstArray the first array to sum
-     * @param secondArray the second array to sum
-     * @return the summed array
-     */
-    private int[] sumElements (int[] firstArray, int[] secondArray){
-        int[] resultArray = new int[firstArray.length];
-        for (int i = 0; i < firstArray.length; i++){
-            resultArray[i] = firstArray[i] + secondArray[i];
-        }
-        return resultArray;
+     * @return the smoothing alpha
+     */
+    public double alpha() {
+        return alpha;
     }
 
     /**
-     * Element-wise adds natural logarithms of an array elements to an existing array elements.
+     * Returns the scoring form of the current model parameters.
      *
-     * @param modifiedArray the array that gets modified
-     * @param addedLogArray the array that gets added
-     * @return the modified array
+     * @return the compiled model
      */
-    private double[] addLogs (double[] modifiedArray, double[] addedLogArray){
-        for (int i = 0; i < modifiedArray.length; i++){
-            modifiedArray[i] += Math.log(addedLogArray[i]);
-        }
-        return modifiedArray;
+    CompiledModel compiledModel() {
+        return compiledModel;
     }
 
     /**
-     * Returns the first index of the array maximum.
+     * Classifies the given sentence and returns the most probable label.
      *
-     * @param array the array for maximum localisation
-     * @return the maximum index
-     */
-    private int arrayMax (double[] array){
-        int maxIndex = 0;
-        for (int i = 0; i < array.length; i++)
-            maxIndex = Double.compare(array[i], array[maxIndex]) > 0 ? i : maxIndex;
-        return maxIndex;
+     * @param sentence the sentence to label
+     * @return the determined label
+     */
+    public String classify(String sentence) {
+        return compiledModel.label(compiledModel.classify(sentence));
+    }
+
+    /**
+     * Computes the model parameters from the current word counts. Every likelihood
+     * depends on the label frequencies and the vocabulary size, so all of them are
+     * computed again, which takes one pass over the vocabulary or the buckets.
+     */
+    private void train () {
+        handleNullCounts();
+        setWordsLikelihoods();
+        setPriors();
+        compile();
+    }
+
+    /**
+     * Sets the label frequencies from the word counts, adding alpha occurrences of every
+     * feature to every label so that no likelihood is zero. The vocabulary of hashed
+     * features is the counted buckets, the others get the likelihood of unseen words.
+     */
+    private void handleNullCounts () {
+        int vocabularySize = wordsCounts.vocabularySize();
+        labelFrequencies = new double[wordsCounts.labelCount()];
+        for (int i = 0; i < labelFrequencies.length; i++) {
+            labelFrequencies[i] = wordsCounts.labelFrequency(i) + alpha * vocabularySize;
+        }
+    }
+
+    /**
+     * Sets the attribute wordsLikelihoods.
+     */
+    private void setWordsLikelihoods () {
+        int labelCount = labelFrequencies.length;
+        wordsLikelihoods = new double[CompiledModel.likelihoodCount(wordsCounts.size(), labelCount)];
+        for (int id = 0; id < wordsCounts.size(); id++) {
+            for (int i = 0; i < labelCount; i++) {
+                wordsLikelihoods[id * labelCount + i] = (wordsCounts.count(id, i) + alpha) / labelFrequencies[i];
+            }
+        }
+    }
+
+    /**
+     * Sets the attribute priors.
+     */
+    private void setPriors () {
+        double labelsFrequency = 0;
+        for (double labelFrequency : labelFrequencies) {
+            labelsFrequency += labelFrequency;
+        }
+        priors = new double[labelFrequencies.length];
+        for (int i = 0; i < priors.length; i++) {
+            priors[i] = labelFrequencies[i] / labelsFrequency;
+        }
+    }
+
+    /**
+     * Builds the compiledModel attribute from the current likelihoods, priors
+     * and label frequencies.
+     */
+    private void compile () {
+        int labelCount = labelFrequencies.length;
+        String[] labels = new String[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            labels[i] = wordsCounts.label(i);
+        }
+        int termCount = features.hashed() ? 0 : wordsCounts.size();
+        TermIndex terms = new TermIndex(termCount);
+        double[] logLikelihoods = new double[wordsLikelihoods.length];
+        for (int id = 0; id < termCount; id++) {
+            terms.add(wordsCounts.term(id));
+        }
+        for (int i = 0; i < wordsLikelihoods.length; i++) {
+            logLikelihoods[i] = Math.log(wordsLikelihoods[i]);
+        }
+        double[] logDefaultLikelihoods = new double[labelCount];
+        double[] logPriors = new double[labelCount];
+        for (int i = 0; i < labelCount; i++) {
+            logDefaultLikelihoods[i] = Math.log(alpha / labelFrequencies[i]);
+            logPriors[i] = Math.log(priors[i]);
+        }
+        compiledModel = new CompiledModel(features, labels, terms, DoubleBuffer.wrap(logLikelihoods), logDefaultLikelihoods, logPriors);
     }
 }
@@ -0,0 +1,546 @@
+package interview.test;
+
+import interview.core.Features;
+import interview.core.ModelFile;
+import interview.core.Preprocessor;
+import interview.core.TermIndex;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static interview.core.Preprocessor.preprocess;
+import static interview.test.CSVReader.forEachChunk;
+import static interview.test.CSVReader.forEachRow;
+
+/**
+ * <h1>Word Counts</h1>
+ * The WordCounts program accumulates the training counts of the classifier one
+ * sentence at a time: the counts of the unique words in every label and the total
+ * numbers of words per label. The labels are the first words of the sentences,
+ * numbered in the order they first appear; sentences with an empty label are not
+ * counted. The counted features of the words are given by Features, the words alone
+ * by default. The counts are kept in a primitive table indexed by the ids of the
+ * features in a TermIndex, so the memory grows with the vocabulary and not with the
+ * number of sentences, or by the buckets of hashed features, so the memory is fixed.
+ * Counts of separate parts of the data can be merged, which lets the counting run
+ * in parallel, and the counts of a part can be taken away again, which gives the
+ * counts of the rest of the data without counting it.
+ *
+ * @author  Tomas Majer
+ * @version 1.0
+ */
+
+public class WordCounts implements ModelFile.Counts {
+
+    /**
+     * Label index of a sentence whose label word was not seen yet.
+     */
+    private static final int NO_LABEL = -2;
+    /**
+     * Label index of a sentence with an empty label.
+     */
+    private static final int UNKNOWN_LABEL = -1;
+
+    /**
+     * The counted features of the words.
+     */
+    private final Features features;
+    /**
+     * The index of the unique features, empty for hashed features.
+     */
+    private final TermIndex terms;
+    /**
+     * The index of the labels.
+     */
+    private TermIndex labels;
+    /**
+     * The numbers of the rows where the labels first appeared.
+     */
+    private long[] labelFirstRows;
+    /**
+     * The length of a row of the counts table, at least the number of labels.
+     */
+    private int labelStride;
+    /**
+     * The counts of the features, row-major by feature id or bucket: [id * labelStride + label].
+     */
+    private int[] counts;
+    /**
+     * Total numbers of words per label.
+     */
+    private long[] labelFrequencies;
+    /**
+     * Number of the next added row.
+     */
+    private long rows;
+    /**
+     * The visitor counting the words of the sentence being added.
+     */
+    private final Preprocessor.WordVisitor sentenceVisitor;
+    /**
+     * The visitor counting the features of the words of the sentence being added.
+     */
+    private final Preprocessor.WordVisitor featureVisitor;
+    /**
+     * Label index of the sentence being added.
+     */
+    private int sentenceLabel;
+    /**
+     * Number of words of the sentence being added, without the label.
+     */
+    private int sentenceWords;
+
+    /**
+     * Class constructor counting the words alone.
+     */
+    public WordCounts(){
+        this(Features.UNIGRAMS);
+    }
+
+    /**
+     * Class constructor.
+     *
+     * @param features the counted features of the words
+     */
+    public WordCounts(Features features){
+        this.features = features;
+        this.terms = new TermIndex(features.hashed() ? 0 : 1024);
+        this.labels = new TermIndex(16);
+        this.labelFirstRows = new long[4];
+        this.labelStride = 4;
+        this.counts = new int[(features.hashed() ? features.buckets() : 1024) * labelStride];
+        this.labelFrequencies = new long[4];
+        this.sentenceVisitor = this::visit;
+        this.featureVisitor = features.visitor(this::countFeature);
+    }
+
+    /**
+     * Adds the counts of the preprocessed words, the first word is the label.
+     *
+     * @param words preprocessed words of the sentence
+     */
+    public void add(String[] words){
+        rows++;
+        sentenceLabel = NO_LABEL;
+        sentenceWords = 0;
+        Features.reset(featureVisitor);
+        for (String word: words) {
+            visit(word.toCharArray(), word.length());
+        }
+        addSentenceFrequency();
+    }
+
+    /**
+     * Adds the counts of the labeled sentence, the first word of the sentence
+     * is the label. The sentence is preprocessed on the fly.
+     *
+     * @param sentence the labeled sentence
+     */
+    public void add(String sentence){
+        rows++;
+        sentenceLabel = NO_LABEL;
+        sentenceWords = 0;
+        Features.reset(featureVisitor);
+        preprocess(sentence, sentenceVisitor);
+        addSentenceFrequency();
+    }
+
+    /**
+     * Returns the index of the label, adding the label with the next free index
+     * when it is new.
+     *
+     * @param label the label
+     * @return the index of the label
+     */
+    public int addLabel(String label){
+        return addLabel(label.toCharArray(), label.length());
+    }
+
+    /**
+     * Adds to the count of the feature in the label, for the features indexed by their text.
+     *
+     * @param word the feature
+     * @param label the index of the label
+     * @param count the added count
+     */
+    public void addCount(String word, int label, int count){
+        int id = terms.add(word);
+        ensureCapacity(id);
+        counts[id * labelStride + label] += count;
+    }
+
+    /**
+     * Adds to the count of the bucket in the label, for the hashed features.
+     *
+     * @param bucket the bucket
+     * @param label the index of the label
+     * @param count the added count
+     */
+    public void addBucketCount(int bucket, int label, int count){
+        counts[bucket * labelStride + label] += count;
+    }
+
+    /**
+     * Adds to the total number of words in the label.
+     *
+     * @param label the index of the label
+     * @param frequency the added number of words
+     */
+    public void addLabelFrequency(int label, long frequency){
+        labelFrequencies[label] += frequency;
+    }
+
+    /**
+     * Adds the counts of the other word counts of the same features to these counts.
+     *
+     * @param other the merged word counts
+     */
+    public void merge(WordCounts other){
+        if (!features.equals(other.features)) {
+            throw new IllegalArgumentException("Cannot merge the counts of " + other.features + " into " + features);
+        }
+        int[] labelMap = new int[other.labelCount()];
+        for (int i = 0; i < labelMap.length; i++) {
+            boolean known = labels.find(other.label(i)) >= 0;
+            labelMap[i] = addLabel(other.label(i));
+            if (!known || other.labelFirstRows[i] < labelFirstRows[labelMap[i]]) {
+                labelFirstRows[labelMap[i]] = other.labelFirstRows[i];
+            }
+        }
+        for (int otherId = 0; otherId < other.size(); otherId++) {
+            int id = features.hashed() ? otherId : terms.add(other.term(otherId));
+            ensureCapacity(id);
+            for (int i = 0; i < labelMap.length; i++) {
+                counts[id * labelStride + labelMap[i]] += other.counts[otherId * other.labelStride + i];
+            }
+        }
+        for (int i = 0; i < labelMap.length; i++) {
+            labelFrequencies[labelMap[i]] += other.labelFrequencies[i];
+        }
+        rows = Math.max(rows, other.rows);
+    }
+
+    /**
+     * Returns the word counts of the labeled sentences of the CSV file at pathCSV,
+     * the header row is skipped. The rows are read in chunks by the calling thread
+     * and counted by the given number of threads, each into its own word counts,
+     * which are merged at the end, see CSVReader.forEachChunk. The counts and the order of the labels are the
+     * same as counting the rows one by one.
+     *
+     * @param pathCSV path to the CSV file
+     * @param threads number of counting threads
+     * @param features the counted features of the words
+     * @return the word counts
+     */
+    public static WordCounts countCSV(String pathCSV, int threads, Features features) throws IOException {
+        WordCounts wordCounts = new WordCounts(features);
+        if (threads <= 1) {
+            forEachRow(pathCSV, wordCounts::add);
+            return wordCounts;
+        }
+        List<WordCounts> shards = forEachChunk(pathCSV, threads, () -> new WordCounts(features),
+                (shard, firstRow, rows) -> {
+                    shard.rows = firstRow;
+                    for (String row: rows) {
+                        shard.add(row);
+                    }
+                });
+        for (WordCounts shard: shards) {
+            wordCounts.merge(shard);
+        }
+        wordCounts.orderLabelsByFirstRow();
+        return wordCounts;
+    }
+
+    /**
+     * Returns the word counts of the folds of the labeled sentences of the CSV file at
+     * pathCSV, the header row is skipped. The rows are dealt to the folds in turn, the
+     * row number modulo the number of folds is the fold of the row. The rows are counted
+     * in chunks by the given number of threads as by countCSV, the counts of every fold
+     * and the order of their labels are the same for any number of threads.
+     *
+     * @param pathCSV path to the CSV file
+     * @param folds number of folds
+     * @param threads number of counting threads
+     * @param features the counted features of the words
+     * @return the word counts of the folds
+     */
+    public static WordCounts[] countFolds(String pathCSV, int folds, int threads, Features features) throws IOException {
+        List<WordCounts[]> shards = forEachChunk(pathCSV, Math.max(threads, 1), () -> {
+                    WordCounts[] shard = new WordCounts[folds];
+                    for (int fold = 0; fold < folds; fold++) {
+                        shard[fold] = new WordCounts(features);
+                    }
+                    return shard;
+                },
+                (shard, firstRow, rows) -> {
+                    for (int i = 0; i < rows.size(); i++) {
+                        WordCounts foldCounts = shard[(int) ((firstRow + i) % folds)];
+                        foldCounts.rows = firstRow + i;
+                        foldCounts.add(rows.get(i));
+                    }
+                });
+        WordCounts[] foldCounts = new WordCounts[folds];
+        for (int fold = 0; fold < folds; fold++) {
+            foldCounts[fold] = new WordCounts(features);
+            for (WordCounts[] shard: shards) {
+                foldCounts[fold].merge(shard[fold]);
+            }
+            foldCounts[fold].orderLabelsByFirstRow();
+        }
+        return foldCounts;
+    }
+
+    /**
+     * Returns new word counts of these counts without the counts of the part, which
+     * must have been counted into these ones. The features left without any count are
+     * dropped, so the result is the same as counting the rest of the data alone, only
+     * the labels are all the labels of these counts in their order.
+     *
+     * @param part the word counts of a part of the counted data
+     * @return the word counts of the rest of the data
+     */
+    public WordCounts without(WordCounts part){
+        if (!features.equals(part.features)) {
+            throw new IllegalArgumentException("Cannot take the counts of " + part.features + " from " + features);
+        }
+        int labelCount = labelCount();
+        int[] partLabels = new int[labelCount];
+        WordCounts rest = new WordCounts(features);
+        for (int i = 0; i < labelCount; i++) {
+            partLabels[i] = part.labels.find(label(i));
+            rest.addLabel(label(i));
+            rest.labelFrequencies[i] = labelFrequencies[i] - (partLabels[i] >= 0 ? part.labelFrequencies[partLabels[i]] : 0);
+        }
+        int[] row = new int[labelCount];
+        for (int id = 0; id < size(); id++) {
+            int partId = features.hashed() ? id : part.find(term(id));
+            boolean counted = false;
+            for (int i = 0; i < labelCount; i++) {
+                row[i] = counts[id * labelStride + i];
+                if (partId >= 0 && partLabels[i] >= 0) row[i] -= part.counts[partId * part.labelStride + partLabels[i]];
+                counted |= row[i] != 0;
+            }
+            if (!counted && !features.hashed()) continue;
+            int restId = features.hashed() ? id : rest.terms.add(term(id));
+            rest.ensureCapacity(restId);
+            System.arraycopy(row, 0, rest.counts, restId * rest.labelStride, labelCount);
+        }
+        return rest;
+    }
+
+    /**
+     * Returns the counted features of the words.
+     *
+     * @return the features
+     */
+    public Features features(){
+        return features;
+    }
+
+    /**
+     * Returns the number of rows of the counts: the number of unique features, or
+     * the number of buckets of hashed features.
+     *
+     * @return the number of rows
+     */
+    public int size(){
+        return features.hashed() ? features.buckets() : terms.size();
+    }
+
+    /**
+     * Returns the size of the vocabulary: the number of unique features, or the
+     * number of counted buckets of hashed features.
+     *
+     * @return the size of the vocabulary
+     */
+    public int vocabularySize(){
+        if (!features.hashed()) return terms.size();
+        int counted = 0;
+        for (int bucket = 0; bucket < size(); bucket++) {
+            if (isCounted(bucket)) counted++;
+        }
+        return counted;
+    }
+
+    /**
+     * Returns whether the feature or bucket is counted in any label.
+     *
+     * @param id the id of the feature or the bucket
+     * @return true for a counted row
+     */
+    public boolean isCounted(int id){
+        for (int i = 0; i < labelCount(); i++) {
+            if (counts[id * labelStride + i] != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of labels.
+     *
+     * @return the number of labels
+     */
+    public int labelCount(){
+        return labels.size();
+    }
+
+    /**
+     * Returns the label with the given index.
+     *
+     * @param label the index of the label
+     * @return the label
+     */
+    public String label(int label){
+        return labels.term(label);
+    }
+
+    /**
+     * Returns the id of the feature, or -1 if the feature was not counted, for the
+     * features indexed by their text.
+     *
+     * @param word the feature
+     * @return the id of the feature
+     */
+    public int find(String word){
+        return terms.find(word);
+    }
+
+    /**
+     * Returns the feature with the given id, for the features indexed by their text.
+     *
+     * @param id the id of the feature
+     * @return the feature
+     */
+    public String term(int id){
+        return terms.term(id);
+    }
+
+    /**
+     * Returns the count of the word with the given id in the label.
+     *
+     * @param id the id of the word
+     * @param label the index of the label
+     * @return the count of the word
+     */
+    public int count(int id, int label){
+        return counts[id * labelStride + label];
+    }
+
+    /**
+     * Returns the total number of words in the label.
+     *
+     * @param label the index of the label
+     * @return the number of words
+     */
+    public long labelFrequency(int label){
+        return labelFrequencies[label];
+    }
+
+    /**
+     * Counts the features of a word of the sentence being added, the first word is
+     * taken as the label.
+     *
+     * @param word the buffer holding the word
+     * @param length the length of the word
+     */
+    private void visit(char[] word, int length){
+        if (sentenceLabel == NO_LABEL) {
+            sentenceLabel = length == 0 ? UNKNOWN_LABEL : addLabel(word, length);
+            return;
+        }
+        featureVisitor.visit(word, length);
+    }
+
+    /**
+     * Counts a feature of the sentence being added. Empty words are only counted
+     * in the label frequency.
+     *
+     * @param feature the buffer holding the feature
+     * @param length the length of the feature
+     */
+    private void countFeature(char[] feature, int length){
+        sentenceWords++;
+        if (length == 0) return;
+        int id = features.hashed() ? features.bucket(feature, length) : terms.add(feature, length);
+        ensureCapacity(id);
+        if (sentenceLabel >= 0) counts[id * labelStride + sentenceLabel]++;
+    }
+
+    /**
+     * Enlarges the counts table to hold the word with the given id.
+     *
+     * @param id the id of the word
+     */
+    private void ensureCapacity(int id){
+        if ((id + 1) * labelStride > counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length * 2, (id + 1) * labelStride));
+        }
+    }
+
+    /**
+     * Returns the index of the label in the buffer, adding the label with the next
+     * free index when it is new. The rows of the counts table are widened when the
+     * labels do not fit in them.
+     *
+     * @param label the buffer holding the label
+     * @param length the length of the label
+     * @return the index of the label
+     */
+    private int addLabel(char[] label, int length){
+        int labelCount = labels.size();
+        int index = labels.add(label, length);
+        if (index < labelCount) return index;
+        if (index == labelStride) {
+            int rowCount = counts.length / labelStride;
+            int[] widened = new int[rowCount * labelStride * 2];
+            for (int id = 0; id < rowCount; id++) {
+                System.arraycopy(counts, id * labelStride, widened, id * labelStride * 2, labelStride);
+            }
+            counts = widened;
+            labelStride *= 2;
+        }
+        if (index == labelFrequencies.length) {
+            labelFrequencies = Arrays.copyOf(labelFrequencies, index * 2);
+            labelFirstRows = Arrays.copyOf(labelFirstRows, index * 2);
+        }
+        labelFirstRows[index] = rows - 1;
+        return index;
+    }
+
+    /**
+     * Renumbers the labels in the order of the rows where they first appeared.
+     */
+    private void orderLabelsByFirstRow(){
+        int labelCount = labelCount();
+        Integer[] order = new Integer[labelCount];
+        for (int i = 0; i < labelCount; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(labelFirstRows[a], labelFirstRows[b]));
+        String[] names = new String[labelCount];
+        for (int i = 0; i < labelCount; i++) names[i] = label(order[i]);
+        int[] ordered = new int[counts.length];
+        long[] orderedFrequencies = new long[labelFrequencies.length];
+        long[] orderedFirstRows = new long[labelFirstRows.length];
+        for (int i = 0; i < labelCount; i++) {
+            int from = order[i];
+            for (int id = 0; id < size(); id++) {
+                ordered[id * labelStride + i] = counts[id * labelStride + from];
+            }
+            orderedFrequencies[i] = labelFrequencies[from];
+            orderedFirstRows[i] = labelFirstRows[from];
+        }
+        counts = ordered;
+        labelFrequencies = orderedFrequencies;
+        labelFirstRows = orderedFirstRows;
+        labels = new TermIndex(16);
+        for (String name: names) labels.add(name);
+    }
+
+    /**
+     * Adds the words of the sentence being added to its label frequency.
+     */
+    private void addSentenceFrequency(){
+        if (sentenceLabel >= 0) labelFrequencies[sentenceLabel] += sentenceWords;
+    }
+}
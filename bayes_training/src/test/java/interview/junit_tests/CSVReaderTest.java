@@ -0,0 +1,71 @@
+package interview.junit_tests;
+
+import interview.test.CSVReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class CSVReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void chunksHoldAllRowsInOrder() throws IOException {
+        Path csv = csvFile(50_000);
+        List<List<String>> shards = CSVReader.forEachChunk(csv.toString(), 3, ArrayList::new,
+                (rows, firstRow, chunk) -> {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        assertEquals(row(firstRow + i), chunk.get(i));
+                    }
+                    rows.addAll(chunk);
+                });
+        assertEquals(3, shards.size());
+        assertEquals(50_000, shards.stream().mapToInt(List::size).sum());
+    }
+
+    @Test(timeout = 30_000)
+    public void failingConsumerFailsTheReading() throws IOException {
+        Path csv = csvFile(100_000);
+        for (int threads: new int[]{1, 3}) {
+            try {
+                CSVReader.forEachChunk(csv.toString(), threads, () -> null, (state, firstRow, chunk) -> {
+                    if (chunk.contains(row(20_000))) throw new IllegalArgumentException("Malformed row");
+                });
+                fail("No failure with " + threads + " threads");
+            } catch (IOException e) {
+                assertEquals(IllegalArgumentException.class, e.getCause().getClass());
+                assertEquals("Malformed row", e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns a new CSV file with a header and the given number of rows.
+     */
+    private Path csvFile(int rows) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("SENTIMENT;TEXT");
+        for (int i = 0; i < rows; i++) lines.add(row(i));
+        Path csv = folder.newFile().toPath();
+        Files.write(csv, lines, StandardCharsets.UTF_8);
+        return csv;
+    }
+
+    /**
+     * Returns the row of the given number.
+     */
+    private static String row(long number) {
+        return "positive;sentence " + number;
+    }
+}
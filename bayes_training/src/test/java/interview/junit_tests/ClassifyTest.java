@@ -1,15 +1,28 @@
 package interview.junit_tests;
 
+import interview.core.Features;
 import interview.test.NaiveBayesClassifier;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
 import java.util.ArrayList;
 
+import static interview.core.Preprocessor.preprocess;
+import static interview.test.CSVReader.readCSV;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 public class ClassifyTest {
     private NaiveBayesClassifier model = new NaiveBayesClassifier();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void modelClassifiesPositive() {
         ArrayList<String[]> posit = new ArrayList<>();
@@ -33,4 +46,132 @@ public class ClassifyTest {
         model.fit(negat);
         assertEquals("negative", model.classify("Bad shop"));
     }
+
+    @Test
+    public void ngramModelClassifiesPhrases() {
+        ArrayList<String[]> phrases = new ArrayList<>();
+        phrases.add(new String[]{"positive", "good", "food"});
+        phrases.add(new String[]{"positive", "not", "bad"});
+        phrases.add(new String[]{"negative", "bad", "food"});
+        phrases.add(new String[]{"negative", "not", "good"});
+        model.fit(phrases);
+        assertEquals("positive", model.classify("Not good"));
+        NaiveBayesClassifier bigramModel = new NaiveBayesClassifier(new Features(2, 0));
+        bigramModel.fit(phrases);
+        assertEquals("negative", bigramModel.classify("Not good"));
+        NaiveBayesClassifier hashedModel = new NaiveBayesClassifier(new Features(2, 12));
+        hashedModel.fit(phrases);
+        assertEquals("negative", hashedModel.classify("Not good"));
+    }
+
+    @Test
+    public void streamedFitMatchesFit() throws IOException {
+        ArrayList<String> trainSentences = readCSV("train.csv");
+        trainSentences.remove(0);
+        model.fit(preprocess(trainSentences));
+        NaiveBayesClassifier streamedModel = new NaiveBayesClassifier();
+        streamedModel.fit("train.csv", 1);
+        NaiveBayesClassifier parallelModel = new NaiveBayesClassifier();
+        parallelModel.fit("train.csv", 4);
+        for (String sentence: readCSV("test.csv")) {
+            assertEquals(model.classify(sentence), streamedModel.classify(sentence));
+            assertEquals(model.classify(sentence), parallelModel.classify(sentence));
+        }
+    }
+
+    @Test
+    public void updatedModelMatchesFit() throws IOException {
+        ArrayList<String> trainSentences = readCSV("train.csv");
+        trainSentences.remove(0);
+        ArrayList<String[]> trainWords = preprocess(trainSentences);
+        model.fit(trainWords);
+        NaiveBayesClassifier firstHalfModel = new NaiveBayesClassifier();
+        firstHalfModel.fit(new ArrayList<>(trainWords.subList(0, trainWords.size() / 2)));
+        String modelFile = folder.newFile("params.bin").getPath();
+        firstHalfModel.writeBinaryParams(modelFile);
+
+        NaiveBayesClassifier updatedModel = new NaiveBayesClassifier();
+        updatedModel.loadParams(modelFile);
+        updatedModel.partialFit(new ArrayList<>(trainWords.subList(trainWords.size() / 2, trainWords.size())));
+        for (String sentence: readCSV("test.csv")) {
+            assertEquals(model.classify(sentence), updatedModel.classify(sentence));
+        }
+    }
+
+    @Test
+    public void updatedSmoothedModelKeepsAlpha() throws IOException {
+        ArrayList<String> trainSentences = readCSV("train.csv");
+        trainSentences.remove(0);
+        ArrayList<String[]> trainWords = preprocess(trainSentences);
+        NaiveBayesClassifier smoothedModel = new NaiveBayesClassifier(Features.UNIGRAMS, 0.25);
+        smoothedModel.fit(trainWords);
+        NaiveBayesClassifier firstHalfModel = new NaiveBayesClassifier(Features.UNIGRAMS, 0.25);
+        firstHalfModel.fit(new ArrayList<>(trainWords.subList(0, trainWords.size() / 2)));
+        String modelFile = folder.newFile("params.bin").getPath();
+        firstHalfModel.writeBinaryParams(modelFile);
+
+        NaiveBayesClassifier updatedModel = new NaiveBayesClassifier();
+        updatedModel.loadParams(modelFile);
+        updatedModel.partialFit(new ArrayList<>(trainWords.subList(trainWords.size() / 2, trainWords.size())));
+        assertEquals(0.25, updatedModel.alpha(), 0);
+        for (String sentence: readCSV("test.csv")) {
+            assertEquals(smoothedModel.classify(sentence), updatedModel.classify(sentence));
+        }
+    }
+
+    @Test
+    public void modelClassifiesLabelsOfData() {
+        ArrayList<String[]> topics = new ArrayList<>();
+        topics.add(new String[]{"parking", "no", "parking", "spaces"});
+        topics.add(new String[]{"prices", "high", "prices"});
+        topics.add(new String[]{"staff", "rude", "staff"});
+        topics.add(new String[]{"opening", "closed", "on", "sunday"});
+        model.fit(topics);
+        assertEquals("parking", model.classify("Parking spaces"));
+        assertEquals("prices", model.classify("High prices"));
+        assertEquals("staff", model.classify("Rude staff"));
+        assertEquals("opening", model.classify("Closed on Sunday"));
+    }
+
+    @Test
+    public void updatedHashedModelMatchesFit() throws IOException {
+        Features features = new Features(2, 16);
+        ArrayList<String> trainSentences = readCSV("train.csv");
+        trainSentences.remove(0);
+        ArrayList<String[]> trainWords = preprocess(trainSentences);
+        NaiveBayesClassifier hashedModel = new NaiveBayesClassifier(features);
+        hashedModel.fit(trainWords);
+        NaiveBayesClassifier firstHalfModel = new NaiveBayesClassifier(features);
+        firstHalfModel.fit(new ArrayList<>(trainWords.subList(0, trainWords.size() / 2)));
+        String modelFile = folder.newFile("params.bin").getPath();
+        firstHalfModel.writeBinaryParams(modelFile);
+
+        NaiveBayesClassifier updatedModel = new NaiveBayesClassifier();
+        updatedModel.loadParams(modelFile);
+        updatedModel.partialFit(new ArrayList<>(trainWords.subList(trainWords.size() / 2, trainWords.size())));
+        assertEquals(features, updatedModel.features());
+        for (String sentence: readCSV("test.csv")) {
+            assertEquals(hashedModel.classify(sentence), updatedModel.classify(sentence));
+        }
+    }
+
+    @Test
+    public void parallelFitKeepsOrderOfLabels() throws IOException {
+        File csv = folder.newFile("topics.csv");
+        try (PrintWriter writer = new PrintWriter(csv, "UTF-8")) {
+            writer.println("TOPIC;TEXT");
+            for (int row = 0; row < 20000; row++) {
+                int topic = (row / 300 + row % 7) % 60;
+                writer.println("topic" + (char) ('a' + topic / 26) + (char) ('a' + topic % 26) + ";word" + row % 97);
+            }
+        }
+        model.fit(csv.getPath(), 1);
+        NaiveBayesClassifier parallelModel = new NaiveBayesClassifier();
+        parallelModel.fit(csv.getPath(), 4);
+        File modelFile = folder.newFile("topics.bin");
+        File parallelModelFile = folder.newFile("topics-parallel.bin");
+        model.writeBinaryParams(modelFile.getPath());
+        parallelModel.writeBinaryParams(parallelModelFile.getPath());
+        assertArrayEquals(Files.readAllBytes(modelFile.toPath()), Files.readAllBytes(parallelModelFile.toPath()));
+    }
 }
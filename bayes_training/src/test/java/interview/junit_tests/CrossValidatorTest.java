@@ -0,0 +1,59 @@
+package interview.junit_tests;
+
+import interview.core.Features;
+import interview.test.CrossValidation;
+import interview.test.CrossValidator;
+import interview.test.Evaluation;
+import interview.test.Evaluator;
+import interview.test.NaiveBayesClassifier;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static interview.core.Preprocessor.preprocess;
+import static interview.test.CSVReader.readCSV;
+import static org.junit.Assert.assertEquals;
+
+public class CrossValidatorTest {
+
+    @Test
+    public void foldModelsMatchModelsTrainedWithoutTheFold() throws IOException {
+        ArrayList<String> trainSentences = readCSV("train.csv");
+        trainSentences.remove(0);
+        ArrayList<String[]> trainWords = preprocess(trainSentences);
+        double[] alphas = {0.25, 1};
+        int folds = 3;
+        for (Features features: new Features[]{Features.UNIGRAMS, new Features(2, 16)}) {
+            CrossValidation crossValidation = CrossValidator.crossValidate("train.csv", features, folds, alphas, 2);
+            assertEquals(trainWords.size(), crossValidation.evaluation(0).sentences());
+            for (int fold = 0; fold < folds; fold++) {
+                ArrayList<String[]> foldWords = new ArrayList<>();
+                ArrayList<String[]> restWords = new ArrayList<>();
+                for (int row = 0; row < trainWords.size(); row++) {
+                    (row % folds == fold ? foldWords : restWords).add(trainWords.get(row));
+                }
+                for (int alpha = 0; alpha < alphas.length; alpha++) {
+                    NaiveBayesClassifier model = new NaiveBayesClassifier(features, alphas[alpha]);
+                    model.fit(restWords);
+                    Evaluation expected = Evaluator.evaluation(foldWords, model);
+                    Evaluation evaluation = crossValidation.evaluation(alpha, fold);
+                    assertEquals(expected.sentences(), evaluation.sentences());
+                    assertEquals(expected.accuracy(), evaluation.accuracy(), 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void crossValidationIsTheSameForAnyNumberOfThreads() throws IOException {
+        double[] alphas = {0.1, 0.5, 1, 2};
+        CrossValidation single = CrossValidator.crossValidate("train.csv", Features.UNIGRAMS, 5, alphas, 1);
+        CrossValidation parallel = CrossValidator.crossValidate("train.csv", Features.UNIGRAMS, 5, alphas, 4);
+        for (int alpha = 0; alpha < alphas.length; alpha++) {
+            assertEquals(single.accuracy(alpha), parallel.accuracy(alpha), 0);
+            assertEquals(single.accuracyDeviation(alpha), parallel.accuracyDeviation(alpha), 0);
+        }
+        assertEquals(single.bestAlpha(), parallel.bestAlpha(), 0);
+    }
+}
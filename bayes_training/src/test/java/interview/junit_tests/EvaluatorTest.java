@@ -0,0 +1,64 @@
+package interview.junit_tests;
+
+import interview.test.Evaluation;
+import interview.test.Evaluator;
+import interview.test.NaiveBayesClassifier;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static interview.core.Preprocessor.preprocess;
+import static interview.test.CSVReader.readCSV;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class EvaluatorTest {
+
+    @Test
+    public void evaluationMatchesClassifyingJoinedSentences() throws IOException {
+        NaiveBayesClassifier model = new NaiveBayesClassifier();
+        model.fit("train.csv");
+        ArrayList<String> testSentences = readCSV("test.csv");
+        testSentences.remove(0);
+        ArrayList<String[]> testWords = preprocess(testSentences);
+        String[] labels = {"positive", "negative", "neutral"};
+        long[][] expected = new long[labels.length][labels.length];
+        for (String[] words: testWords) {
+            String label = model.classify(String.join(" ", Arrays.copyOfRange(words, 1, words.length)));
+            expected[Arrays.asList(labels).indexOf(words[0])][Arrays.asList(labels).indexOf(label)]++;
+        }
+
+        for (Evaluation evaluation: new Evaluation[]{Evaluator.evaluation(testWords, model),
+                Evaluator.evaluate("test.csv", model, 1), Evaluator.evaluate("test.csv", model, 4)}) {
+            assertArrayEquals(labels, evaluation.expectedLabels());
+            for (int i = 0; i < labels.length; i++) {
+                for (int j = 0; j < labels.length; j++) {
+                    assertEquals(expected[i][j], evaluation.count(i, j));
+                }
+            }
+        }
+        assertEquals(Evaluator.evaluate(testWords, model), Evaluator.evaluate("test.csv", model, 4).accuracy(), 0);
+    }
+
+    @Test
+    public void evaluationReportsMetricsOfLabels() {
+        Evaluation evaluation = new Evaluation(new String[]{"good", "bad"});
+        for (int i = 0; i < 3; i++) evaluation.add("good", 0);
+        evaluation.add("good", 1);
+        evaluation.add("bad", 1);
+        evaluation.add("bad", 1);
+        evaluation.add("unknown", 0);
+        assertArrayEquals(new String[]{"good", "bad", "unknown"}, evaluation.expectedLabels());
+        assertEquals(7, evaluation.sentences());
+        assertEquals(5.0 / 7, evaluation.accuracy(), 1e-12);
+        assertEquals(3.0 / 4, evaluation.precision(0), 1e-12);
+        assertEquals(3.0 / 4, evaluation.recall(0), 1e-12);
+        assertEquals(2.0 / 3, evaluation.precision(1), 1e-12);
+        assertEquals(1.0, evaluation.recall(1), 1e-12);
+        assertEquals(0.8, evaluation.f1(1), 1e-12);
+        assertEquals(0.0, evaluation.recall(2), 0);
+        assertEquals(1, evaluation.support(2));
+    }
+}
@@ -0,0 +1,124 @@
+package interview.junit_tests;
+
+import interview.core.CompiledModel;
+import interview.core.Features;
+import interview.core.ModelFile;
+import interview.core.TermIndex;
+import interview.test.NaiveBayesClassifier;
+import interview.test.WordCounts;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ModelFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rejectsTruncatedModelFiles() throws IOException {
+        Path modelFile = tinyModel(Features.UNIGRAMS);
+        byte[] bytes = Files.readAllBytes(modelFile);
+        CompiledModel model = ModelFile.map(modelFile);
+        int labelCount = model.labels().length;
+        // the word counts follow the log-likelihoods, the model is served without them
+        int servedLength = bytes.length - 8 * labelCount - 4 * model.terms().size() * labelCount;
+
+        for (int length = 0; length < bytes.length; length++) {
+            Path truncated = folder.newFile().toPath();
+            Files.write(truncated, Arrays.copyOf(bytes, length));
+            if (length < servedLength) assertFailsToMap(truncated);
+            try {
+                ModelFile.readCounts(truncated, WordCounts::new);
+                fail("Read the counts of the model file truncated to " + length + " bytes");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Truncated model file")
+                        || e.getMessage().startsWith("Unsupported model file"));
+            }
+        }
+    }
+
+    @Test
+    public void rejectsModelFilesOfTooManyLikelihoods() throws IOException {
+        Path modelFile = tinyModel(new Features(1, 8));
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(modelFile)).order(ByteOrder.LITTLE_ENDIAN);
+        // 2^24 buckets of 200 labels, more log-likelihoods than an int counts
+        header.putInt(16, Features.MAX_HASH_BITS);
+        header.putInt(28, 200);
+        Files.write(modelFile, header.array());
+
+        assertFailsToMap(modelFile);
+        try {
+            ModelFile.readCounts(modelFile, WordCounts::new);
+            fail("Read the counts of a model file of too many log-likelihoods");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Unsupported model file"));
+        }
+    }
+
+    @Test
+    public void rejectsModelFilesOfNegativeCounts() throws IOException {
+        Path modelFile = tinyModel(Features.UNIGRAMS);
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(modelFile)).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(32, -1);
+        Files.write(modelFile, header.array());
+
+        assertFailsToMap(modelFile);
+    }
+
+    @Test
+    public void boundsLikelihoodsOfModel() {
+        int buckets = 1 << Features.MAX_HASH_BITS;
+        assertEquals(buckets * 127, CompiledModel.likelihoodCount(buckets, 127));
+        try {
+            CompiledModel.likelihoodCount(buckets, 128);
+            fail("Counted more log-likelihoods than an int holds");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new CompiledModel(new Features(1, Features.MAX_HASH_BITS), new String[128], new TermIndex(0),
+                    DoubleBuffer.allocate(0), new double[128], new double[128]);
+            fail("Built a model of more log-likelihoods than an int holds");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    /**
+     * Writes the binary model file of a model trained on three sentences.
+     */
+    private Path tinyModel(Features features) throws IOException {
+        ArrayList<String[]> data = new ArrayList<>();
+        data.add(new String[]{"positive", "good", "shop"});
+        data.add(new String[]{"negative", "bad", "shop"});
+        data.add(new String[]{"neutral", "open", "at", "nine"});
+        NaiveBayesClassifier model = new NaiveBayesClassifier(features);
+        model.fit(data);
+        Path modelFile = folder.newFile().toPath();
+        model.writeBinaryParams(modelFile.toString());
+        return modelFile;
+    }
+
+    /**
+     * Fails unless mapping the model file fails with an IOException.
+     */
+    private static void assertFailsToMap(Path modelFile) {
+        try {
+            ModelFile.map(modelFile);
+            fail("Mapped the invalid model file of " + modelFile.toFile().length() + " bytes");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package interview.junit_tests;
+
+import interview.core.ClassificationListener;
+import interview.core.CompiledModel;
+import interview.core.Explanation;
+import interview.core.Features;
+import interview.core.ModelFile;
+import interview.test.NaiveBayesClassifier;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static interview.core.Preprocessor.preprocess;
+import static interview.test.CSVReader.readCSV;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ParityTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void servedModelScoresTestSentencesAsTrainedModel() throws IOException {
+        ArrayList<String> testSentences = readCSV("test.csv");
+        Features[] variants = {Features.UNIGRAMS, new Features(2, 0), new Features(3, 0), new Features(2, 16)};
+        for (Features features: variants) {
+            NaiveBayesClassifier model = new NaiveBayesClassifier(features, 0.5);
+            model.fit("train.csv");
+            Path modelFile = folder.newFile().toPath();
+            model.writeBinaryParams(modelFile.toString());
+            CompiledModel served = ModelFile.map(modelFile);
+
+            assertEquals(features, served.features());
+            for (String sentence: testSentences) {
+                String label = model.classify(sentence);
+                assertEquals(label, served.label(served.classify(sentence)));
+                Explanation explanation = served.explain(sentence, 5, null);
+                assertEquals(label, explanation.label());
+                assertEquals(1.0, sum(explanation.posteriors()), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void scorerMatchesClassifyAndCountsWords() throws IOException {
+        NaiveBayesClassifier model = new NaiveBayesClassifier();
+        model.fit("train.csv");
+        Path modelFile = folder.newFile().toPath();
+        model.writeBinaryParams(modelFile.toString());
+        CompiledModel served = ModelFile.map(modelFile);
+        CompiledModel.Scorer scorer = served.scorer();
+        int[] words = new int[2];
+        ClassificationListener listener = (label, sentenceWords, unknownWords) -> {
+            words[0] = sentenceWords;
+            words[1] = unknownWords;
+        };
+        assertEquals(served.classify("Good shop qwertyuiop", listener),
+                served.classify("Good shop qwertyuiop"));
+        assertArrayEquals(new int[]{3, 1}, words);
+        preprocess("Nice staff xyzzy plugh", scorer);
+        assertEquals(served.classify("Nice staff xyzzy plugh"), scorer.finish(listener));
+        assertArrayEquals(new int[]{4, 2}, words);
+        for (String sentence: readCSV("test.csv")) {
+            preprocess(sentence, scorer);
+            assertEquals(served.classify(sentence), scorer.finish());
+        }
+    }
+
+    @Test
+    public void ngramsAreNotCountedAsWords() throws IOException {
+        Features[] variants = {new Features(2, 0), new Features(3, 0), new Features(2, 16)};
+        for (Features features: variants) {
+            NaiveBayesClassifier model = new NaiveBayesClassifier(features, 0.5);
+            model.fit("train.csv");
+            Path modelFile = folder.newFile().toPath();
+            model.writeBinaryParams(modelFile.toString());
+            CompiledModel served = ModelFile.map(modelFile);
+            int[] words = new int[2];
+            ClassificationListener listener = (label, sentenceWords, unknownWords) -> {
+                words[0] = sentenceWords;
+                words[1] = unknownWords;
+            };
+            int[] expected = {4, features.hashed() ? 0 : 2};
+            served.classify("Good shop qwertyuiop zxcvbnm", listener);
+            assertArrayEquals(expected, words);
+            served.explain("Good shop qwertyuiop zxcvbnm", 3, listener);
+            assertArrayEquals(expected, words);
+            CompiledModel.Scorer scorer = served.scorer();
+            preprocess("Good shop qwertyuiop zxcvbnm", scorer);
+            scorer.finish(listener);
+            assertArrayEquals(expected, words);
+        }
+    }
+
+    /**
+     * Returns the sum of the values.
+     */
+    private static double sum(double[] values) {
+        double sum = 0;
+        for (double value: values) sum += value;
+        return sum;
+    }
+}